@@ -5,6 +5,7 @@ public class Constants {
     public static final long SESSION_EXPIRE_HOURS = 12L;
     public static final long MESSAGE_BUFFER_TIMEOUT_MS = 100L;
     public static final long MESSAGE_BUFFER_MAX_TIMEOUT_MS = MESSAGE_BUFFER_TIMEOUT_MS * 3;
+    public static final long MESSAGE_BUFFER_EXPIRE_MS = 10 * 60 * 1000L;
     public static final int INITIAL_BUFFER_CAPACITY = 1024;
     public static final int MAX_CACHE_SIZE = 10000;
 
@@ -13,10 +14,17 @@ public class Constants {
     public static final String FEISHU_MESSAGE_TYPE_TEXT = "text";
     public static final String FEISHU_CARD_STATUS_OK = "ok";
     public static final String FEISHU_CARD_STATUS_FAILED = "failed";
+    public static final String FEISHU_BUSY_NOTICE = "当前咨询人数较多，请稍后再试。";
+    public static final String FEISHU_RATE_LIMIT_RESET_HEADER = "x-ogw-ratelimit-reset";
+    public static final long FEISHU_RATE_LIMIT_DEFAULT_BACKOFF_MS = 1000L;
+    // 发送消息时卡片实体无效（过期或内容创建失败），换一张卡片可以恢复
+    public static final int FEISHU_CARD_CONTENT_ERROR = 230099;
 
     // Dify相关常量
     public static final String DIFY_EVENT_AGENT_MESSAGE = "agent_message";
     public static final String DIFY_EVENT_MESSAGE = "message";
+    public static final String DIFY_EVENT_MESSAGE_END = "message_end";
+    public static final String DIFY_EVENT_ERROR = "error";
     public static final String DIFY_RESPONSE_MODE_STREAMING = "streaming";
     public static final String DIFY_HISTORY_NULL = "null";
 
@@ -26,6 +34,7 @@ public class Constants {
     public static final int HTTP_TIMEOUT_SECONDS = 30;
     public static final int HTTP_MAX_RETRIES = 3;
     public static final int HTTP_RETRY_INTERVAL_MS = 1000;
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
 
     // 响应码
     public static final String RESPONSE_CODE_SUCCESS = "0";
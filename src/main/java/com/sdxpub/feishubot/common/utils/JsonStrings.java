@@ -0,0 +1,54 @@
+package com.sdxpub.feishubot.common.utils;
+
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * JSON字符串转义工具，直接写入okio的BufferedSink
+ */
+public class JsonStrings {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 转义后写入字符串内容（不含两侧引号），连续的无需转义字符整段写入
+     */
+    public static void writeEscaped(BufferedSink sink, String value) throws IOException {
+        int length = value.length();
+        int runStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                continue;
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c == '\b') {
+                escape = "\\b";
+            } else if (c == '\f') {
+                escape = "\\f";
+            } else {
+                escape = "\\u" + HEX[(c >> 12) & 0xf] + HEX[(c >> 8) & 0xf] + HEX[(c >> 4) & 0xf] + HEX[c & 0xf];
+            }
+            if (runStart < i) {
+                sink.writeUtf8(value, runStart, i);
+            }
+            sink.writeUtf8(escape);
+            runStart = i + 1;
+        }
+        if (runStart < length) {
+            sink.writeUtf8(value, runStart, length);
+        }
+    }
+
+    private JsonStrings() {
+    }
+}
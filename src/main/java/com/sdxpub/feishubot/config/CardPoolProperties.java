@@ -0,0 +1,150 @@
+package com.sdxpub.feishubot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "card-pool")
+public class CardPoolProperties {
+    private int initialSize = 20;
+    private int minSize = 5;
+    private int maxSize = 50;
+    // 统计取用速率的滑动窗口长度
+    private int demandWindowSeconds = 300;
+    // 池中卡片需要覆盖多少秒的峰值取用量
+    private int coverSeconds = 30;
+    private long resizeInterval = 10000;
+    private int maxRetries = 3;
+    private long retryInterval = 1000;
+    private String rebuildCron = "0 0 0 * * ?";
+    // 剩余有效期小于该值的卡片会被轮换
+    private int rotationLeadMinutes = 120;
+    private int rotationBatchSize = 2;
+    private long rotationInterval = 60000;
+    // 停机时保存卡片池的快照文件，为空则不启用
+    private String snapshotFile = "data/card-pool.snapshot";
+    // 恢复快照时跳过剩余有效期不足该值的卡片
+    private int snapshotMinRemainingMinutes = 120;
+    // 池中卡片达到该数量后应用才对外就绪
+    private int readyMinSize = 5;
+
+    public int getInitialSize() {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getDemandWindowSeconds() {
+        return demandWindowSeconds;
+    }
+
+    public void setDemandWindowSeconds(int demandWindowSeconds) {
+        this.demandWindowSeconds = demandWindowSeconds;
+    }
+
+    public int getCoverSeconds() {
+        return coverSeconds;
+    }
+
+    public void setCoverSeconds(int coverSeconds) {
+        this.coverSeconds = coverSeconds;
+    }
+
+    public long getResizeInterval() {
+        return resizeInterval;
+    }
+
+    public void setResizeInterval(long resizeInterval) {
+        this.resizeInterval = resizeInterval;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRetryInterval() {
+        return retryInterval;
+    }
+
+    public void setRetryInterval(long retryInterval) {
+        this.retryInterval = retryInterval;
+    }
+
+    public String getRebuildCron() {
+        return rebuildCron;
+    }
+
+    public void setRebuildCron(String rebuildCron) {
+        this.rebuildCron = rebuildCron;
+    }
+
+    public int getRotationLeadMinutes() {
+        return rotationLeadMinutes;
+    }
+
+    public void setRotationLeadMinutes(int rotationLeadMinutes) {
+        this.rotationLeadMinutes = rotationLeadMinutes;
+    }
+
+    public int getRotationBatchSize() {
+        return rotationBatchSize;
+    }
+
+    public void setRotationBatchSize(int rotationBatchSize) {
+        this.rotationBatchSize = rotationBatchSize;
+    }
+
+    public long getRotationInterval() {
+        return rotationInterval;
+    }
+
+    public void setRotationInterval(long rotationInterval) {
+        this.rotationInterval = rotationInterval;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public int getSnapshotMinRemainingMinutes() {
+        return snapshotMinRemainingMinutes;
+    }
+
+    public void setSnapshotMinRemainingMinutes(int snapshotMinRemainingMinutes) {
+        this.snapshotMinRemainingMinutes = snapshotMinRemainingMinutes;
+    }
+
+    public int getReadyMinSize() {
+        return readyMinSize;
+    }
+
+    public void setReadyMinSize(int readyMinSize) {
+        this.readyMinSize = readyMinSize;
+    }
+}
@@ -0,0 +1,108 @@
+package com.sdxpub.feishubot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "execution")
+public class ExecutionProperties {
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    // 阻塞调用的线程类型：platform使用平台线程，virtual使用虚拟线程（需要Java 21）
+    private String mode = MODE_PLATFORM;
+    // @Scheduled任务的线程数，token刷新、卡片轮换、扩缩容等定时任务互不阻塞
+    private int schedulingThreads = 4;
+    // 用户请求的卡片创建（池空时的同步创建、消息卡片）
+    private int cardCreationThreads = 4;
+    private int cardCreationQueueCapacity = 200;
+    // 卡片池后台填充和轮换，与用户请求的创建分开，补充再慢也不会让用户排队
+    private int cardPoolFillThreads = 2;
+    private int cardPoolFillQueueCapacity = 200;
+    // 卡片更新请求体的编码
+    private int cardUpdateThreads = 4;
+    private int cardUpdateQueueCapacity = 1000;
+    // Dify流式响应的读取，每个流占用一个线程直到结束
+    private int difyStreamThreads = 64;
+    private int difyStreamQueueCapacity = 100;
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getSchedulingThreads() {
+        return schedulingThreads;
+    }
+
+    public void setSchedulingThreads(int schedulingThreads) {
+        this.schedulingThreads = schedulingThreads;
+    }
+
+    public int getCardCreationThreads() {
+        return cardCreationThreads;
+    }
+
+    public void setCardCreationThreads(int cardCreationThreads) {
+        this.cardCreationThreads = cardCreationThreads;
+    }
+
+    public int getCardCreationQueueCapacity() {
+        return cardCreationQueueCapacity;
+    }
+
+    public void setCardCreationQueueCapacity(int cardCreationQueueCapacity) {
+        this.cardCreationQueueCapacity = cardCreationQueueCapacity;
+    }
+
+    public int getCardPoolFillThreads() {
+        return cardPoolFillThreads;
+    }
+
+    public void setCardPoolFillThreads(int cardPoolFillThreads) {
+        this.cardPoolFillThreads = cardPoolFillThreads;
+    }
+
+    public int getCardPoolFillQueueCapacity() {
+        return cardPoolFillQueueCapacity;
+    }
+
+    public void setCardPoolFillQueueCapacity(int cardPoolFillQueueCapacity) {
+        this.cardPoolFillQueueCapacity = cardPoolFillQueueCapacity;
+    }
+
+    public int getCardUpdateThreads() {
+        return cardUpdateThreads;
+    }
+
+    public void setCardUpdateThreads(int cardUpdateThreads) {
+        this.cardUpdateThreads = cardUpdateThreads;
+    }
+
+    public int getCardUpdateQueueCapacity() {
+        return cardUpdateQueueCapacity;
+    }
+
+    public void setCardUpdateQueueCapacity(int cardUpdateQueueCapacity) {
+        this.cardUpdateQueueCapacity = cardUpdateQueueCapacity;
+    }
+
+    public int getDifyStreamThreads() {
+        return difyStreamThreads;
+    }
+
+    public void setDifyStreamThreads(int difyStreamThreads) {
+        this.difyStreamThreads = difyStreamThreads;
+    }
+
+    public int getDifyStreamQueueCapacity() {
+        return difyStreamQueueCapacity;
+    }
+
+    public void setDifyStreamQueueCapacity(int difyStreamQueueCapacity) {
+        this.difyStreamQueueCapacity = difyStreamQueueCapacity;
+    }
+}
@@ -0,0 +1,122 @@
+package com.sdxpub.feishubot.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按用途划分的有界执行器，阻塞的上游调用不占用ForkJoin公共池
+ * 线程数和队列都有上限，队列满时直接拒绝，由调用方按失败处理。
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * @Scheduled任务使用的调度器
+     * 容器中已有ScheduledExecutorService，Spring Boot不会再自动配置taskScheduler，否则所有定时任务共用单线程。
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ExecutionProperties executionProperties) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, executionProperties.getSchedulingThreads()));
+        scheduler.setThreadNamePrefix("Scheduling-");
+        scheduler.setDaemon(true);
+        scheduler.setErrorHandler(e -> log.error("[Executor] Scheduled task failed: {}", e.getMessage(), e));
+        log.info("[Executor] scheduling: {} threads", scheduler.getPoolSize());
+        return scheduler;
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cardCreationExecutor(ExecutionProperties executionProperties, MeterRegistry meterRegistry) {
+        return newExecutor("card-creation", "CardCreate-", executionProperties.getCardCreationThreads(),
+                executionProperties.getCardCreationQueueCapacity(), executionProperties, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cardPoolFillExecutor(ExecutionProperties executionProperties, MeterRegistry meterRegistry) {
+        return newExecutor("card-pool-fill", "CardPoolFill-", executionProperties.getCardPoolFillThreads(),
+                executionProperties.getCardPoolFillQueueCapacity(), executionProperties, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cardUpdateExecutor(ExecutionProperties executionProperties, MeterRegistry meterRegistry) {
+        return newExecutor("card-update", "CardUpdate-", executionProperties.getCardUpdateThreads(),
+                executionProperties.getCardUpdateQueueCapacity(), executionProperties, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService difyStreamExecutor(ExecutionProperties executionProperties, MeterRegistry meterRegistry) {
+        return newExecutor("dify-stream", "DifyStream-", executionProperties.getDifyStreamThreads(),
+                executionProperties.getDifyStreamQueueCapacity(), executionProperties, meterRegistry);
+    }
+
+    private ExecutorService newExecutor(String name, String threadPrefix, int threads, int queueCapacity,
+            ExecutionProperties executionProperties, MeterRegistry meterRegistry) {
+        int poolSize = Math.max(1, threads);
+        BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new ArrayBlockingQueue<>(queueCapacity)
+                : new SynchronousQueue<>();
+        Counter rejected = Counter.builder("feishubot.executor.rejected")
+                .description("Tasks rejected because the executor and its queue were full")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, queue,
+                threadFactory(threadPrefix, executionProperties), (r, e) -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException("Executor " + name + " is saturated");
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        // 导出活跃线程数、排队数、队列剩余容量等饱和度指标
+        new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(meterRegistry);
+        log.info("[Executor] {}: {} threads, queue capacity {}", name, poolSize, queueCapacity);
+        return executor;
+    }
+
+    private ThreadFactory threadFactory(String threadPrefix, ExecutionProperties executionProperties) {
+        if (ExecutionProperties.MODE_VIRTUAL.equalsIgnoreCase(executionProperties.getMode())) {
+            ThreadFactory virtualFactory = newVirtualThreadFactory(threadPrefix);
+            if (virtualFactory != null) {
+                return virtualFactory;
+            }
+            log.warn("[Executor] Virtual threads require Java 21, running on {}; falling back to platform threads",
+                    System.getProperty("java.version"));
+        }
+        return r -> {
+            Thread thread = new Thread(r);
+            thread.setName(threadPrefix + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 通过反射调用Thread.ofVirtual()，保证Java 8下仍可编译运行
+     */
+    private ThreadFactory newVirtualThreadFactory(String threadPrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, threadPrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
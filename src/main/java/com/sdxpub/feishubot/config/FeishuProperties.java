@@ -13,6 +13,9 @@ public class FeishuProperties {
     private String encryptKey;
     private boolean enableEncrypt = false;
     private String apiEndpoint = "https://open.feishu.cn/open-apis";
+    // 事件去重窗口，需覆盖飞书的重推间隔（15秒、5分钟、1小时、6小时）
+    private long eventDedupWindowMinutes = 480;
+    private long eventDedupMaxSize = 20000;
 
     public String getAppId() {
         return appId;
@@ -61,4 +64,20 @@ public class FeishuProperties {
     public void setApiEndpoint(String apiEndpoint) {
         this.apiEndpoint = apiEndpoint;
     }
+
+    public long getEventDedupWindowMinutes() {
+        return eventDedupWindowMinutes;
+    }
+
+    public void setEventDedupWindowMinutes(long eventDedupWindowMinutes) {
+        this.eventDedupWindowMinutes = eventDedupWindowMinutes;
+    }
+
+    public long getEventDedupMaxSize() {
+        return eventDedupMaxSize;
+    }
+
+    public void setEventDedupMaxSize(long eventDedupMaxSize) {
+        this.eventDedupMaxSize = eventDedupMaxSize;
+    }
 }
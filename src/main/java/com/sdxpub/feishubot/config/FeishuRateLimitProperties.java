@@ -0,0 +1,79 @@
+package com.sdxpub.feishubot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 飞书接口的客户端限流配置，取值需低于飞书对应用和单张卡片的频控上限
+ */
+@Component
+@ConfigurationProperties(prefix = "feishu.rate-limit")
+public class FeishuRateLimitProperties {
+    // 创建卡片实体，按应用计
+    private double cardCreateQps = 40;
+    private int cardCreateBurst = 40;
+    // 发送消息，按应用计
+    private double messageSendQps = 40;
+    private int messageSendBurst = 40;
+    // 更新卡片内容，按卡片计
+    private double cardUpdateQps = 8;
+    private int cardUpdateBurst = 2;
+    // 后台流量（卡片池填充、轮换）需为用户请求保留的令牌比例
+    private double backgroundReserveRatio = 0.5;
+
+    public double getCardCreateQps() {
+        return cardCreateQps;
+    }
+
+    public void setCardCreateQps(double cardCreateQps) {
+        this.cardCreateQps = cardCreateQps;
+    }
+
+    public int getCardCreateBurst() {
+        return cardCreateBurst;
+    }
+
+    public void setCardCreateBurst(int cardCreateBurst) {
+        this.cardCreateBurst = cardCreateBurst;
+    }
+
+    public double getMessageSendQps() {
+        return messageSendQps;
+    }
+
+    public void setMessageSendQps(double messageSendQps) {
+        this.messageSendQps = messageSendQps;
+    }
+
+    public int getMessageSendBurst() {
+        return messageSendBurst;
+    }
+
+    public void setMessageSendBurst(int messageSendBurst) {
+        this.messageSendBurst = messageSendBurst;
+    }
+
+    public double getCardUpdateQps() {
+        return cardUpdateQps;
+    }
+
+    public void setCardUpdateQps(double cardUpdateQps) {
+        this.cardUpdateQps = cardUpdateQps;
+    }
+
+    public int getCardUpdateBurst() {
+        return cardUpdateBurst;
+    }
+
+    public void setCardUpdateBurst(int cardUpdateBurst) {
+        this.cardUpdateBurst = cardUpdateBurst;
+    }
+
+    public double getBackgroundReserveRatio() {
+        return backgroundReserveRatio;
+    }
+
+    public void setBackgroundReserveRatio(double backgroundReserveRatio) {
+        this.backgroundReserveRatio = backgroundReserveRatio;
+    }
+}
@@ -1,45 +1,103 @@
 package com.sdxpub.feishubot.config;
 
-import com.sdxpub.feishubot.common.constants.Constants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpMetricsEventListener;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Configuration
-@EnableAsync
 public class HttpClientConfig {
+    private static final Pattern CARD_ID_SEGMENT = Pattern.compile("/cards/[^/]+");
 
+    /**
+     * Dify流式请求专用客户端
+     */
     @Bean
-    public OkHttpClient okHttpClient() {
+    public OkHttpClient difyHttpClient(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        return buildClient("dify",
+                properties.getDifyConnectTimeout(),
+                properties.getDifyReadTimeout(),
+                properties.getDifyWriteTimeout(),
+                properties.getDifyCallTimeout(),
+                properties.getDifyMaxRequests(),
+                properties.getDifyMaxRequestsPerHost(),
+                properties.getDifyMaxIdleConnections(),
+                properties.getDifyKeepAliveMinutes(),
+                properties.isDifyHttp2(),
+                meterRegistry);
+    }
+
+    /**
+     * 飞书接口调用专用客户端
+     */
+    @Bean
+    public OkHttpClient feishuHttpClient(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        return buildClient("feishu",
+                properties.getFeishuConnectTimeout(),
+                properties.getFeishuReadTimeout(),
+                properties.getFeishuWriteTimeout(),
+                properties.getFeishuCallTimeout(),
+                properties.getFeishuMaxRequests(),
+                properties.getFeishuMaxRequestsPerHost(),
+                properties.getFeishuMaxIdleConnections(),
+                properties.getFeishuKeepAliveMinutes(),
+                properties.isFeishuHttp2(),
+                meterRegistry);
+    }
+
+    private OkHttpClient buildClient(String name, int connectTimeout, int readTimeout, int writeTimeout,
+            int callTimeout, int maxRequests, int maxRequestsPerHost, int maxIdleConnections,
+            int keepAliveMinutes, boolean http2, MeterRegistry meterRegistry) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveMinutes, TimeUnit.MINUTES);
+        Tags tags = Tags.of("client", name);
+        new OkHttpConnectionPoolMetrics(connectionPool, "okhttp.pool", tags, maxIdleConnections).bindTo(meterRegistry);
+
         return new OkHttpClient.Builder()
-                .connectTimeout(Constants.HTTP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(Constants.HTTP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .writeTimeout(Constants.HTTP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .connectTimeout(connectTimeout, TimeUnit.SECONDS)
+                .readTimeout(readTimeout, TimeUnit.SECONDS)
+                .writeTimeout(writeTimeout, TimeUnit.SECONDS)
+                .callTimeout(callTimeout, TimeUnit.SECONDS)
+                .protocols(http2
+                        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
                 .retryOnConnectionFailure(true)
+                .eventListener(OkHttpMetricsEventListener.builder(meterRegistry, "okhttp.requests")
+                        .tags(tags)
+                        .uriMapper(HttpClientConfig::uriTemplate)
+                        .build())
                 .build();
     }
 
-    @Bean
-    public ThreadPoolTaskExecutor asyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(8);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("AsyncThread-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        executor.initialize();
-        return executor;
+    /**
+     * 请求路径中的卡片ID替换为占位符，避免指标标签基数过高
+     */
+    private static String uriTemplate(Request request) {
+        return CARD_ID_SEGMENT.matcher(request.url().encodedPath()).replaceAll("/cards/{card_id}");
     }
 
     @Bean
-    public ScheduledExecutorService scheduledExecutor() {
+    public ScheduledExecutorService scheduledExecutor(MeterRegistry meterRegistry) {
         ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
         executor.setRemoveOnCancelPolicy(true);
         executor.setThreadFactory(r -> {
@@ -48,6 +106,8 @@ public class HttpClientConfig {
             thread.setDaemon(true);
             return thread;
         });
+        // 缓冲区补发、限流等待都排在这里，排队数反映调度是否积压
+        new ExecutorServiceMetrics(executor, "scheduledExecutor", Tags.empty()).bindTo(meterRegistry);
         return executor;
     }
 }
@@ -0,0 +1,179 @@
+package com.sdxpub.feishubot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dify流式请求和飞书接口调用分别使用独立的HTTP客户端
+ * 超时单位为秒，0表示不限制
+ */
+@Component
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+    // Dify：流式响应持续时间长，推理模型两段输出之间可能停顿较久，读超时按两次数据之间的间隔计算
+    private int difyConnectTimeout = 10;
+    private int difyReadTimeout = 300;
+    private int difyWriteTimeout = 30;
+    private int difyCallTimeout = 0;
+    private int difyMaxRequests = 256;
+    private int difyMaxRequestsPerHost = 256;
+    private int difyMaxIdleConnections = 32;
+    private int difyKeepAliveMinutes = 5;
+    // 流式响应默认每个流独占一个HTTP/1.1连接，避免多个流共用一条TCP连接时相互阻塞
+    private boolean difyHttp2 = false;
+
+    // 飞书：短请求，超时从严，HTTP/2多路复用减少连接数
+    private int feishuConnectTimeout = 5;
+    private int feishuReadTimeout = 10;
+    private int feishuWriteTimeout = 10;
+    private int feishuCallTimeout = 30;
+    private int feishuMaxRequests = 128;
+    private int feishuMaxRequestsPerHost = 64;
+    private int feishuMaxIdleConnections = 16;
+    private int feishuKeepAliveMinutes = 5;
+    private boolean feishuHttp2 = true;
+
+    public int getDifyConnectTimeout() {
+        return difyConnectTimeout;
+    }
+
+    public void setDifyConnectTimeout(int difyConnectTimeout) {
+        this.difyConnectTimeout = difyConnectTimeout;
+    }
+
+    public int getDifyReadTimeout() {
+        return difyReadTimeout;
+    }
+
+    public void setDifyReadTimeout(int difyReadTimeout) {
+        this.difyReadTimeout = difyReadTimeout;
+    }
+
+    public int getDifyWriteTimeout() {
+        return difyWriteTimeout;
+    }
+
+    public void setDifyWriteTimeout(int difyWriteTimeout) {
+        this.difyWriteTimeout = difyWriteTimeout;
+    }
+
+    public int getDifyCallTimeout() {
+        return difyCallTimeout;
+    }
+
+    public void setDifyCallTimeout(int difyCallTimeout) {
+        this.difyCallTimeout = difyCallTimeout;
+    }
+
+    public int getDifyMaxRequests() {
+        return difyMaxRequests;
+    }
+
+    public void setDifyMaxRequests(int difyMaxRequests) {
+        this.difyMaxRequests = difyMaxRequests;
+    }
+
+    public int getDifyMaxRequestsPerHost() {
+        return difyMaxRequestsPerHost;
+    }
+
+    public void setDifyMaxRequestsPerHost(int difyMaxRequestsPerHost) {
+        this.difyMaxRequestsPerHost = difyMaxRequestsPerHost;
+    }
+
+    public int getDifyMaxIdleConnections() {
+        return difyMaxIdleConnections;
+    }
+
+    public void setDifyMaxIdleConnections(int difyMaxIdleConnections) {
+        this.difyMaxIdleConnections = difyMaxIdleConnections;
+    }
+
+    public int getDifyKeepAliveMinutes() {
+        return difyKeepAliveMinutes;
+    }
+
+    public void setDifyKeepAliveMinutes(int difyKeepAliveMinutes) {
+        this.difyKeepAliveMinutes = difyKeepAliveMinutes;
+    }
+
+    public boolean isDifyHttp2() {
+        return difyHttp2;
+    }
+
+    public void setDifyHttp2(boolean difyHttp2) {
+        this.difyHttp2 = difyHttp2;
+    }
+
+    public int getFeishuConnectTimeout() {
+        return feishuConnectTimeout;
+    }
+
+    public void setFeishuConnectTimeout(int feishuConnectTimeout) {
+        this.feishuConnectTimeout = feishuConnectTimeout;
+    }
+
+    public int getFeishuReadTimeout() {
+        return feishuReadTimeout;
+    }
+
+    public void setFeishuReadTimeout(int feishuReadTimeout) {
+        this.feishuReadTimeout = feishuReadTimeout;
+    }
+
+    public int getFeishuWriteTimeout() {
+        return feishuWriteTimeout;
+    }
+
+    public void setFeishuWriteTimeout(int feishuWriteTimeout) {
+        this.feishuWriteTimeout = feishuWriteTimeout;
+    }
+
+    public int getFeishuCallTimeout() {
+        return feishuCallTimeout;
+    }
+
+    public void setFeishuCallTimeout(int feishuCallTimeout) {
+        this.feishuCallTimeout = feishuCallTimeout;
+    }
+
+    public int getFeishuMaxRequests() {
+        return feishuMaxRequests;
+    }
+
+    public void setFeishuMaxRequests(int feishuMaxRequests) {
+        this.feishuMaxRequests = feishuMaxRequests;
+    }
+
+    public int getFeishuMaxRequestsPerHost() {
+        return feishuMaxRequestsPerHost;
+    }
+
+    public void setFeishuMaxRequestsPerHost(int feishuMaxRequestsPerHost) {
+        this.feishuMaxRequestsPerHost = feishuMaxRequestsPerHost;
+    }
+
+    public int getFeishuMaxIdleConnections() {
+        return feishuMaxIdleConnections;
+    }
+
+    public void setFeishuMaxIdleConnections(int feishuMaxIdleConnections) {
+        this.feishuMaxIdleConnections = feishuMaxIdleConnections;
+    }
+
+    public int getFeishuKeepAliveMinutes() {
+        return feishuKeepAliveMinutes;
+    }
+
+    public void setFeishuKeepAliveMinutes(int feishuKeepAliveMinutes) {
+        this.feishuKeepAliveMinutes = feishuKeepAliveMinutes;
+    }
+
+    public boolean isFeishuHttp2() {
+        return feishuHttp2;
+    }
+
+    public void setFeishuHttp2(boolean feishuHttp2) {
+        this.feishuHttp2 = feishuHttp2;
+    }
+}
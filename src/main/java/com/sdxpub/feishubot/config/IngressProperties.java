@@ -0,0 +1,59 @@
+package com.sdxpub.feishubot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingress")
+public class IngressProperties {
+    // 等待分发的消息上限，队列满时新消息直接回复繁忙提示
+    private int queueCapacity = 200;
+    // 单个用户排队的消息上限，超出时新消息直接回复繁忙提示
+    private int maxQueuedPerUser = 5;
+    // 本节点同时处理的对话上限
+    private int maxInFlight = 32;
+    // 消息在队列中等待超过该时间则不再处理，回复繁忙提示
+    private long maxWaitSeconds = 60;
+    // 停机时未分发的消息回复繁忙提示，等待提示发出的最长时间
+    private long shutdownTimeoutSeconds = 10;
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxQueuedPerUser() {
+        return maxQueuedPerUser;
+    }
+
+    public void setMaxQueuedPerUser(int maxQueuedPerUser) {
+        this.maxQueuedPerUser = maxQueuedPerUser;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getMaxWaitSeconds() {
+        return maxWaitSeconds;
+    }
+
+    public void setMaxWaitSeconds(long maxWaitSeconds) {
+        this.maxWaitSeconds = maxWaitSeconds;
+    }
+
+    public long getShutdownTimeoutSeconds() {
+        return shutdownTimeoutSeconds;
+    }
+
+    public void setShutdownTimeoutSeconds(long shutdownTimeoutSeconds) {
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+}
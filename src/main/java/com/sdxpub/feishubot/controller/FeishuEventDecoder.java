@@ -0,0 +1,180 @@
+package com.sdxpub.feishubot.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sdxpub.feishubot.model.feishu.FeishuEvent;
+
+import java.io.IOException;
+
+/**
+ * 飞书事件回调解码器
+ * 使用流式JsonParser只读取用到的字段，其余子树直接跳过，不构建通用的Map树。
+ */
+class FeishuEventDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    FeishuEvent decode(byte[] body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expectObject(parser);
+            FeishuEvent event = new FeishuEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "challenge":
+                        event.setChallenge(textValue(parser));
+                        break;
+                    case "header":
+                        event.setHeader(readHeader(parser));
+                        break;
+                    case "event":
+                        event.setEvent(readEvent(parser));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return event;
+        }
+    }
+
+    /**
+     * 从文本消息的content（如{"text":"..."}）中取出text
+     */
+    String decodeText(String content) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(content)) {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("text".equals(name)) {
+                    return textValue(parser);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    private FeishuEvent.Header readHeader(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        FeishuEvent.Header header = new FeishuEvent.Header();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "event_id":
+                    header.setEventId(textValue(parser));
+                    break;
+                case "event_type":
+                    header.setEventType(textValue(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return header;
+    }
+
+    private FeishuEvent.Event readEvent(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        FeishuEvent.Event event = new FeishuEvent.Event();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "sender":
+                    event.setSenderOpenId(readSenderOpenId(parser));
+                    break;
+                case "message":
+                    event.setMessage(readMessage(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return event;
+    }
+
+    private String readSenderOpenId(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        String openId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("sender_id".equals(name) && isObject(parser)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String idName = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("open_id".equals(idName)) {
+                        openId = textValue(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return openId;
+    }
+
+    private FeishuEvent.ReceivedMessage readMessage(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        FeishuEvent.ReceivedMessage message = new FeishuEvent.ReceivedMessage();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "message_id":
+                    message.setMessageId(textValue(parser));
+                    break;
+                case "message_type":
+                    message.setMessageType(textValue(parser));
+                    break;
+                case "content":
+                    message.setContent(textValue(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return message;
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+    }
+
+    private static boolean isObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    private static String textValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -1,7 +1,12 @@
 package com.sdxpub.feishubot.controller;
 
+import com.sdxpub.feishubot.common.constants.Constants;
+import com.sdxpub.feishubot.model.feishu.FeishuEvent;
 import com.sdxpub.feishubot.model.message.Message;
-import com.sdxpub.feishubot.service.message.MessageService;
+import com.sdxpub.feishubot.service.message.EventDeduplicator;
+import com.sdxpub.feishubot.service.message.MessageIngress;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,77 +16,121 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/webhook")
 public class WebhookController {
     private static final Logger log = LoggerFactory.getLogger(WebhookController.class);
 
-    private final MessageService messageService;
+    private final MessageIngress messageIngress;
+    private final EventDeduplicator eventDeduplicator;
+    private final FeishuEventDecoder eventDecoder = new FeishuEventDecoder();
+    private final Map<String, Timer> ackTimers = new HashMap<>();
 
     @Autowired
-    public WebhookController(MessageService messageService) {
-        this.messageService = messageService;
+    public WebhookController(MessageIngress messageIngress, EventDeduplicator eventDeduplicator,
+            MeterRegistry meterRegistry) {
+        this.messageIngress = messageIngress;
+        this.eventDeduplicator = eventDeduplicator;
+        for (String result : new String[]{"challenge", "ignored", "accepted", "duplicate", "shed", "error"}) {
+            ackTimers.put(result, Timer.builder("feishubot.webhook.ack")
+                    .description("Time from receiving a Feishu event to acknowledging it")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
     }
 
     @PostMapping("/event")
-    public ResponseEntity<Map<String, String>> handleEvent(@RequestBody Map<String, Object> payload) {
-        log.debug("Received event webhook: {}", payload);
-        
+    public ResponseEntity<Map<String, String>> handleEvent(@RequestBody byte[] body) {
+        long start = System.nanoTime();
+        FeishuEvent event;
+        try {
+            event = eventDecoder.decode(body);
+        } catch (IOException e) {
+            log.error("Failed to parse event", e);
+            Map<String, String> response = new HashMap<>();
+            response.put("code", "1");
+            response.put("message", e.getMessage());
+            return ack(start, "error", response);
+        }
+
         // 处理飞书的challenge验证
-        if (payload.containsKey("challenge")) {
+        if (event.getChallenge() != null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("challenge", event.getChallenge());
+            return ack(start, "challenge", response);
+        }
+
+        FeishuEvent.Header header = event.getHeader();
+        log.debug("Received event webhook - ID: {}, Type: {}",
+                header == null ? null : header.getEventId(), header == null ? null : header.getEventType());
+        if (header != null && !Constants.FEISHU_EVENT_TYPE_MESSAGE.equals(header.getEventType())) {
             Map<String, String> response = new HashMap<>();
-            response.put("challenge", payload.get("challenge").toString());
-            return ResponseEntity.ok(response);
+            response.put("code", "0");
+            return ack(start, "ignored", response);
         }
 
         try {
-            Message message = extractMessageFromPayload(payload);
-            messageService.handleMessage(message);
+            Message message = extractMessage(event);
+            String eventId = header == null ? null : header.getEventId();
+            String result = "duplicate";
+            if (eventDeduplicator.markFirstSeen(eventId, message.getMessageId())) {
+                try {
+                    // 只入队，立即应答飞书；过载时由入口回复繁忙提示
+                    result = messageIngress.submit(message) ? "accepted" : "shed";
+                } catch (RuntimeException e) {
+                    eventDeduplicator.forget(eventId, message.getMessageId());
+                    throw e;
+                }
+            }
 
             Map<String, String> response = new HashMap<>();
             response.put("code", "0");
-            return ResponseEntity.ok(response);
+            return ack(start, result, response);
         } catch (Exception e) {
             log.error("Failed to handle event", e);
             Map<String, String> response = new HashMap<>();
             response.put("code", "1");
             response.put("message", e.getMessage());
-            return ResponseEntity.ok(response);
+            return ack(start, "error", response);
         }
     }
 
-    private Message extractMessageFromPayload(Map<String, Object> payload) {
-        // 从payload中提取消息内容
-        Map<String, Object> event = (Map<String, Object>) payload.get("event");
-        if (event == null) {
+    private ResponseEntity<Map<String, String>> ack(long start, String result, Map<String, String> response) {
+        ackTimers.get(result).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return ResponseEntity.ok(response);
+    }
+
+    private Message extractMessage(FeishuEvent event) throws IOException {
+        FeishuEvent.Event eventData = event.getEvent();
+        if (eventData == null) {
             throw new IllegalArgumentException("Event data is missing");
         }
 
-        // 获取消息ID
-        Object messageObj = event.get("message");
-        if (messageObj == null) {
+        FeishuEvent.ReceivedMessage messageData = eventData.getMessage();
+        if (messageData == null) {
             throw new IllegalArgumentException("Message content is missing");
         }
-        Map<String, Object> messageData = (Map<String, Object>) messageObj;
-        String messageId = messageData.get("message_id").toString();
+        String messageId = messageData.getMessageId();
         if (messageId == null) {
             throw new IllegalArgumentException("Message ID is missing");
         }
 
-        // 获取发送者ID
-        Object senderObj = event.get("sender");
-        if (senderObj == null) {
+        String userId = eventData.getSenderOpenId();
+        if (userId == null) {
             throw new IllegalArgumentException("Sender information is missing");
         }
-        Map<String, Object> sender = (Map<String, Object>) senderObj;
-        String userId = sender.get("sender_id").toString();
 
-        // 获取消息内容
-        String content = messageData.get("content").toString();
-        
+        // 文本消息的content是{"text":"..."}，只取出其中的文本
+        String content = messageData.getContent();
+        if (Constants.FEISHU_MESSAGE_TYPE_TEXT.equals(messageData.getMessageType()) && content != null) {
+            content = eventDecoder.decodeText(content);
+        }
+
         log.info("[Webhook] Received message - ID: {}, User: {}, Content: {}", messageId, userId, content);
 
         // 创建消息对象
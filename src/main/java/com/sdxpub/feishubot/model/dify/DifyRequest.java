@@ -1,6 +1,9 @@
 package com.sdxpub.feishubot.model.dify;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
 public class DifyRequest {
     private String query;
     private String user;
@@ -13,6 +16,8 @@ public class DifyRequest {
     
     private Inputs inputs;
 
+    private List<File> files;
+
     public DifyRequest() {
     }
 
@@ -64,6 +69,14 @@ public class DifyRequest {
         this.inputs = inputs;
     }
 
+    public List<File> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<File> files) {
+        this.files = files;
+    }
+
     public static class Inputs {
         private String history;
 
@@ -83,6 +96,63 @@ public class DifyRequest {
         }
     }
 
+    /**
+     * 随消息上传的文件，远程文件填url，已上传到Dify的文件填uploadFileId
+     */
+    public static class File {
+        private String type;
+
+        @JsonProperty("transfer_method")
+        private String transferMethod;
+
+        private String url;
+
+        @JsonProperty("upload_file_id")
+        private String uploadFileId;
+
+        public File() {
+        }
+
+        public File(String type, String transferMethod, String url, String uploadFileId) {
+            this.type = type;
+            this.transferMethod = transferMethod;
+            this.url = url;
+            this.uploadFileId = uploadFileId;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getTransferMethod() {
+            return transferMethod;
+        }
+
+        public void setTransferMethod(String transferMethod) {
+            this.transferMethod = transferMethod;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUploadFileId() {
+            return uploadFileId;
+        }
+
+        public void setUploadFileId(String uploadFileId) {
+            this.uploadFileId = uploadFileId;
+        }
+    }
+
     public static DifyRequest createRequest(String userId, String query, String conversationId) {
         Inputs inputs = new Inputs("null");
         return new DifyRequest(query, userId, conversationId, "streaming", inputs);
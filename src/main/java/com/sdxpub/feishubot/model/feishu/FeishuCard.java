@@ -3,6 +3,7 @@ package com.sdxpub.feishubot.model.feishu;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Getter
 @Setter
@@ -18,6 +19,10 @@ public class FeishuCard {
     private LocalDateTime createdAt;
     private LocalDateTime lastUpdateTime;
     private long expireTime;
+    // 内容更新的sequence，随卡片保存，同一卡片严格递增
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicLong updateSequence = new AtomicLong();
 
     public enum CardStatus {
         CREATING,    // 卡片正在创建中
@@ -66,6 +71,10 @@ public class FeishuCard {
         this.lastUpdateTime = LocalDateTime.now();
     }
 
+    public long nextUpdateSequence() {
+        return updateSequence.incrementAndGet();
+    }
+
     public boolean isReady() {
         return this.status == CardStatus.READY;
     }
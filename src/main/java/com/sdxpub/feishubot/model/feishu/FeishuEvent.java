@@ -0,0 +1,34 @@
+package com.sdxpub.feishubot.model.feishu;
+
+import lombok.Data;
+
+/**
+ * 飞书事件回调（schema 2.0），只包含im.message.receive_v1用到的字段
+ */
+@Data
+public class FeishuEvent {
+    // URL验证请求才有
+    private String challenge;
+    private Header header;
+    private Event event;
+
+    @Data
+    public static class Header {
+        private String eventId;
+        private String eventType;
+    }
+
+    @Data
+    public static class Event {
+        private String senderOpenId;
+        private ReceivedMessage message;
+    }
+
+    @Data
+    public static class ReceivedMessage {
+        private String messageId;
+        private String messageType;
+        // 消息内容本身是JSON字符串，如{"text":"..."}
+        private String content;
+    }
+}
@@ -0,0 +1,99 @@
+package com.sdxpub.feishubot.model.message;
+
+import java.util.Arrays;
+
+/**
+ * 只追加的回答文本缓冲区，非线程安全
+ * 追加的内容先进入尾部块，满BLOCK_SIZE后冻结为不可变块。
+ * 快照只引用已冻结的块并复制当前尾部，生成全文快照的成本与已有文本长度无关。
+ */
+public class AnswerRope {
+    private static final int BLOCK_SIZE = 1024;
+
+    private String[] blocks = new String[16];
+    private int blockCount;
+    private final StringBuilder tail = new StringBuilder(BLOCK_SIZE);
+    private int length;
+
+    public void append(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        tail.append(text);
+        length += text.length();
+        if (tail.length() >= BLOCK_SIZE) {
+            if (blockCount == blocks.length) {
+                // 只复制块引用，已冻结的块不会被修改，旧快照不受影响
+                blocks = Arrays.copyOf(blocks, blockCount * 2);
+            }
+            blocks[blockCount++] = tail.toString();
+            tail.setLength(0);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(blocks, blockCount, tail.toString(), length);
+    }
+
+    /**
+     * 某一时刻的全文快照，按块顺序读取即可得到完整内容
+     */
+    public static final class Snapshot implements CharSequence {
+        private final String[] blocks;
+        private final int blockCount;
+        private final String tail;
+        private final int length;
+
+        private Snapshot(String[] blocks, int blockCount, String tail, int length) {
+            this.blocks = blocks;
+            this.blockCount = blockCount;
+            this.tail = tail;
+            this.length = length;
+        }
+
+        public int chunkCount() {
+            return blockCount + 1;
+        }
+
+        public String chunk(int index) {
+            return index < blockCount ? blocks[index] : tail;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+            }
+            for (int i = 0; i < blockCount; i++) {
+                if (index < blocks[i].length()) {
+                    return blocks[i].charAt(index);
+                }
+                index -= blocks[i].length();
+            }
+            return tail.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < chunkCount(); i++) {
+                builder.append(chunk(i));
+            }
+            return builder.toString();
+        }
+    }
+}
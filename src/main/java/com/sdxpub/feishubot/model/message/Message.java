@@ -8,6 +8,8 @@ public class Message {
     private String content;
     private MessageType type;
     private LocalDateTime timestamp;
+    // 收到消息时的System.nanoTime()，用于统计各阶段耗时
+    private final long receivedNanos = System.nanoTime();
 
     public Message() {
     }
@@ -60,6 +62,10 @@ public class Message {
         this.timestamp = timestamp;
     }
 
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
     public static Message createTextMessage(String userId, String messageId, String content) {
         return new Message(userId, messageId, content, MessageType.TEXT, LocalDateTime.now());
     }
@@ -1,13 +1,18 @@
 package com.sdxpub.feishubot.model.message;
 
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * 流式回答的消息缓冲区，多生产者单消费者
+ * 追加只把片段放入无锁队列并累加长度，不会阻塞读取Dify流的线程，也不会丢弃内容。
+ * 取得消费权的线程负责把队列中的片段移入rope并生成快照。
+ */
 @Slf4j
 public class MessageBuffer {
     private final String userId;
@@ -20,11 +25,24 @@ public class MessageBuffer {
     public String getMessageId() {
         return messageId;
     }
-    private final StringBuilder content;
-    private final ReentrantLock lock;
+    // 待移入rope的片段
+    private final ConcurrentLinkedQueue<String> pending;
+    // 已追加的内容总长度
+    private final AtomicLong appendedLength;
+    // 只由持有消费权的线程访问
+    private final AnswerRope content;
+    // 上次快照时的内容长度，之后追加的部分尚未发送
+    private volatile long sentLength;
+    private final AtomicBoolean draining;
     private final AtomicBoolean cardReady;
     private final AtomicLong lastSendTime;
-    private ScheduledFuture<?> flushTimer;
+    // 最近一次追加内容或结束的时间，缓冲区按空闲时间过期
+    private volatile long lastActivityTime;
+    private final AtomicBoolean flushScheduled;
+    private final AtomicBoolean completed;
+    // 缓冲区移除时完成，表示本次对话处理结束
+    private final CompletableFuture<Void> released;
+    private volatile ScheduledFuture<?> flushTimer;
 
     public void setFlushTimer(ScheduledFuture<?> flushTimer) {
         this.flushTimer = flushTimer;
@@ -37,60 +55,74 @@ public class MessageBuffer {
     public MessageBuffer(String userId, String messageId) {
         this.userId = userId;
         this.messageId = messageId;
-        this.content = new StringBuilder();
-        this.lock = new ReentrantLock();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.appendedLength = new AtomicLong(0);
+        this.content = new AnswerRope();
+        this.draining = new AtomicBoolean(false);
         this.cardReady = new AtomicBoolean(false);
         this.lastSendTime = new AtomicLong(0);
+        this.flushScheduled = new AtomicBoolean(false);
+        this.completed = new AtomicBoolean(false);
+        this.released = new CompletableFuture<>();
+        this.lastActivityTime = System.currentTimeMillis();
     }
 
     public void append(String text) {
-        if (lock.tryLock()) {
-            try {
-                content.append(text);
-            } finally {
-                lock.unlock();
-            }
+        if (text == null || text.isEmpty()) {
+            return;
         }
+        // 先入队再累加长度，长度可见时对应片段一定已在队列中
+        pending.offer(text);
+        appendedLength.addAndGet(text.length());
+        lastActivityTime = System.currentTimeMillis();
     }
 
-    public String getAndClear() {
-        if (lock.tryLock()) {
-            try {
-                String result = content.toString();
-                content.setLength(0);
-                lastSendTime.set(System.currentTimeMillis());
-                return result;
-            } finally {
-                lock.unlock();
-            }
+    /**
+     * 获取全文快照，并将当前内容标记为已发送
+     * 调用方必须先通过tryLock取得消费权
+     */
+    public AnswerRope.Snapshot takeSnapshot() {
+        String chunk;
+        while ((chunk = pending.poll()) != null) {
+            content.append(chunk);
         }
-        return "";
+        AnswerRope.Snapshot snapshot = content.snapshot();
+        sentLength = snapshot.length();
+        lastSendTime.set(System.currentTimeMillis());
+        return snapshot;
     }
 
+    /**
+     * 是否没有待发送的新内容
+     */
     public boolean isEmpty() {
-        if (lock.tryLock()) {
-            try {
-                return content.length() == 0;
-            } finally {
-                lock.unlock();
-            }
-        }
-        return true;
+        return appendedLength.get() == sentLength;
+    }
+
+    public long getSentLength() {
+        return sentLength;
     }
 
     public boolean shouldFlush() {
         long now = System.currentTimeMillis();
-        return !isEmpty() && 
-               cardReady.get() && 
+        return !isEmpty() &&
+               cardReady.get() &&
                (now - lastSendTime.get() >= 100);  // 100ms发送间隔
     }
 
+    public long getLastSendTime() {
+        return lastSendTime.get();
+    }
+
+    /**
+     * 尝试取得消费权，同一时刻只有一个线程可以生成快照
+     */
     public boolean tryLock() {
-        return lock.tryLock();
+        return draining.compareAndSet(false, true);
     }
 
     public void unlock() {
-        lock.unlock();
+        draining.set(false);
     }
 
     public void setCardReady(boolean ready) {
@@ -101,6 +133,41 @@ public class MessageBuffer {
         return cardReady.get();
     }
 
+    /**
+     * 标记已安排延迟发送，返回false表示已有待执行的延迟发送
+     */
+    public boolean markFlushScheduled() {
+        return flushScheduled.compareAndSet(false, true);
+    }
+
+    public void clearFlushScheduled() {
+        flushScheduled.set(false);
+    }
+
+    /**
+     * 标记回答已全部接收
+     */
+    public void markCompleted() {
+        completed.set(true);
+        lastActivityTime = System.currentTimeMillis();
+    }
+
+    public long getLastActivityTime() {
+        return lastActivityTime;
+    }
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    public CompletableFuture<Void> getReleased() {
+        return released;
+    }
+
+    public void release() {
+        released.complete(null);
+    }
+
     public void resetFlushTimer() {
         if (flushTimer != null) {
             flushTimer.cancel(false);
@@ -3,7 +3,14 @@ package com.sdxpub.feishubot.service.card;
 import com.sdxpub.feishubot.model.feishu.FeishuCard;
 import com.sdxpub.feishubot.model.message.Message;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.config.CardPoolProperties;
 import com.sdxpub.feishubot.config.FeishuProperties;
+import com.sdxpub.feishubot.common.constants.Constants;
+import com.sdxpub.feishubot.service.feishu.FeishuRateLimiter;
+import com.sdxpub.feishubot.service.feishu.TenantAccessTokenManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.slf4j.Logger;
@@ -12,117 +19,313 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 @Component
 public class CardPool {
     private static final Logger log = LoggerFactory.getLogger(CardPool.class);
-    private static final int INITIAL_POOL_SIZE = 20;
-    private static final int MIN_POOL_SIZE = 5;
-    private static final int MAX_RETRIES = 3;
-    private static final long RETRY_INTERVAL = 1000; // 1 second
     
     private final ConcurrentLinkedQueue<FeishuCard> cardPool = new ConcurrentLinkedQueue<>();
     private final AtomicInteger poolSize = new AtomicInteger(0);
+    // 已提交但尚未完成的补充任务数，避免并发填充时超出目标大小
+    private final AtomicInteger pendingCreations = new AtomicInteger(0);
+    private final AtomicBoolean warmedUp = new AtomicBoolean(false);
+    private final AtomicBoolean rotating = new AtomicBoolean(false);
+    private final AtomicInteger targetSize;
+    // 启动时的目标大小，统计满一个窗口之前作为下限
+    private final int initialTargetSize;
+    private final long startTime = System.currentTimeMillis();
+    private final CheckoutRateTracker checkoutTracker;
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
 
     private final OkHttpClient httpClient;
     private final FeishuProperties feishuProperties;
+    private final CardPoolProperties cardPoolProperties;
     private final ObjectMapper objectMapper;
+    private final TenantAccessTokenManager tokenManager;
+    private final ExecutorService cardCreationExecutor;
+    // 后台填充和轮换专用，会在限流和重试退避中阻塞，不能占用用户请求的创建线程
+    private final ExecutorService cardPoolFillExecutor;
+    private final FeishuRateLimiter rateLimiter;
+    private final CardTemplateRegistry cardTemplates;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final CardPoolSnapshot snapshot;
     
-    public CardPool(OkHttpClient httpClient, FeishuProperties feishuProperties, ObjectMapper objectMapper) {
-        this.httpClient = httpClient;
+    public CardPool(OkHttpClient feishuHttpClient, FeishuProperties feishuProperties, CardPoolProperties cardPoolProperties,
+            ObjectMapper objectMapper, TenantAccessTokenManager tokenManager,
+            ExecutorService cardCreationExecutor, ExecutorService cardPoolFillExecutor, FeishuRateLimiter rateLimiter,
+            CardTemplateRegistry cardTemplates, MeterRegistry meterRegistry) {
+        this.httpClient = feishuHttpClient;
         this.feishuProperties = feishuProperties;
+        this.cardPoolProperties = cardPoolProperties;
         this.objectMapper = objectMapper;
+        this.tokenManager = tokenManager;
+        this.cardCreationExecutor = cardCreationExecutor;
+        this.cardPoolFillExecutor = cardPoolFillExecutor;
+        this.rateLimiter = rateLimiter;
+        this.cardTemplates = cardTemplates;
+        Gauge.builder("feishubot.cardpool.size", poolSize, AtomicInteger::get)
+                .description("Ready cards in the pool")
+                .register(meterRegistry);
+        Gauge.builder("feishubot.cardpool.target", this, CardPool::getTargetSize)
+                .description("Current target size of the card pool")
+                .register(meterRegistry);
+        this.hitCounter = checkoutCounter(meterRegistry, "hit");
+        this.missCounter = checkoutCounter(meterRegistry, "miss");
+        this.initialTargetSize = Math.max(cardPoolProperties.getMinSize(),
+                Math.min(cardPoolProperties.getMaxSize(), cardPoolProperties.getInitialSize()));
+        this.targetSize = new AtomicInteger(initialTargetSize);
+        this.checkoutTracker = new CheckoutRateTracker(cardPoolProperties.getDemandWindowSeconds() * 1000L, 30);
+        String snapshotFile = cardPoolProperties.getSnapshotFile();
+        this.snapshot = snapshotFile == null || snapshotFile.isEmpty() ? null : new CardPoolSnapshot(Paths.get(snapshotFile));
+    }
+
+    private static Counter checkoutCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("feishubot.cardpool.checkout")
+                .description("Cards taken from the pool; a miss means a card had to be created synchronously")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     @PostConstruct
     public void init() {
-        log.info("[CardPool] Initializing card pool with target size: {}", INITIAL_POOL_SIZE);
+        restoreSnapshot();
+
         LocalDateTime startTime = LocalDateTime.now();
-        log.info("[CardPool] ===== Starting initial pool fill with size {} at {} =====", 
-                INITIAL_POOL_SIZE, 
+        log.info("[CardPool] ===== Starting initial pool fill with size {} (ready at {}) at {} =====", 
+                targetSize.get(), 
+                cardPoolProperties.getReadyMinSize(),
                 startTime.format(timeFormatter));
 
-        fillPool();
+        // 后台并发填充，不阻塞Spring上下文启动
+        fillPool().whenComplete((v, e) ->
+                log.info("[CardPool] ===== Initial pool fill completed at {}, took {} seconds, current size: {} =====",
+                        LocalDateTime.now().format(timeFormatter),
+                        java.time.Duration.between(startTime, LocalDateTime.now()).getSeconds(),
+                        poolSize.get()));
+    }
 
-        log.info("[CardPool] ===== Initial pool fill completed at {}, took {} seconds, current size: {} =====",
-                LocalDateTime.now().format(timeFormatter),
-                java.time.Duration.between(startTime, LocalDateTime.now()).getSeconds(),
-                poolSize.get());
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshot();
     }
 
-    @Scheduled(cron = "0 0 0 * * ?") // 每天0点
+    private void restoreSnapshot() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            List<FeishuCard> cards = snapshot.readAndDelete(cardPoolProperties.getSnapshotMinRemainingMinutes() * 60 * 1000L);
+            for (FeishuCard card : cards) {
+                cardPool.offer(card);
+            }
+            int size = poolSize.addAndGet(cards.size());
+            if (size >= cardPoolProperties.getReadyMinSize()) {
+                warmedUp.set(true);
+            }
+            log.info("[CardPool] Restored {} cards from snapshot {}", cards.size(), cardPoolProperties.getSnapshotFile());
+        } catch (Exception e) {
+            log.error("[CardPool] Failed to restore card pool snapshot: {}", e.getMessage());
+        }
+    }
+
+    private void saveSnapshot() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            List<FeishuCard> cards = new ArrayList<>();
+            for (FeishuCard card : cardPool) {
+                if (!card.isExpired()) {
+                    cards.add(card);
+                }
+            }
+            snapshot.write(cards);
+            log.info("[CardPool] Saved {} cards to snapshot {}", cards.size(), cardPoolProperties.getSnapshotFile());
+        } catch (Exception e) {
+            log.error("[CardPool] Failed to save card pool snapshot: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${card-pool.rebuild-cron:0 0 0 * * ?}") // 默认每天0点
     public void rebuildPool() {
-        log.info("[CardPool] Starting daily card pool rebuild at {}", 
+        log.info("[CardPool] Starting daily rolling card pool rebuild at {}", 
                 LocalDateTime.now().format(timeFormatter));
-        cardPool.clear();
-        poolSize.set(0);
+        rotateCards(card -> true);
+    }
+
+    /**
+     * 定时轮换即将过期的卡片
+     */
+    @Scheduled(fixedDelayString = "${card-pool.rotation-interval:60000}", initialDelayString = "${card-pool.rotation-interval:60000}")
+    public void rotateExpiringCards() {
+        long threshold = System.currentTimeMillis() + cardPoolProperties.getRotationLeadMinutes() * 60 * 1000L;
+        rotateCards(card -> card.getExpireTime() < threshold);
+    }
+
+    /**
+     * 滚动轮换：按过期时间从近到远分批移除旧卡片，池中卡片低于目标大小时才创建替换
+     * 池随需求缩小后，多出的卡片到期淘汰，不会按旧的池大小一对一重建
+     */
+    private void rotateCards(Predicate<FeishuCard> filter) {
+        if (!rotating.compareAndSet(false, true)) {
+            log.info("[CardPool] Rotation already in progress, skipping");
+            return;
+        }
+
+        List<FeishuCard> candidates = new ArrayList<>();
+        for (FeishuCard card : cardPool) {
+            if (filter.test(card)) {
+                candidates.add(card);
+            }
+        }
+        if (candidates.isEmpty()) {
+            rotating.set(false);
+            return;
+        }
+        candidates.sort(Comparator.comparingLong(FeishuCard::getExpireTime));
+
+        log.info("[CardPool] Rotating {} cards in batches of {} at {}", 
+                candidates.size(), 
+                cardPoolProperties.getRotationBatchSize(), 
+                LocalDateTime.now().format(timeFormatter));
+        rotateBatch(candidates, 0).whenComplete((v, e) -> {
+            rotating.set(false);
+            log.info("[CardPool] Rotation finished at {}, current size: {}", 
+                    LocalDateTime.now().format(timeFormatter), 
+                    poolSize.get());
+        });
+    }
+
+    private CompletableFuture<Void> rotateBatch(List<FeishuCard> candidates, int from) {
+        if (from >= candidates.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int to = Math.min(candidates.size(), from + Math.max(1, cardPoolProperties.getRotationBatchSize()));
+
+        int retired = 0;
+        for (FeishuCard oldCard : candidates.subList(from, to)) {
+            // 扫描后被取走的卡片已不在池中，不需要替换
+            if (cardPool.remove(oldCard)) {
+                poolSize.decrementAndGet();
+                retired++;
+            }
+        }
+        if (retired == 0) {
+            return rotateBatch(candidates, to);
+        }
+        log.info("[CardPool] Retired {} cards, pool size {} / target {}", retired, poolSize.get(), targetSize.get());
+        // 只补充到当前目标大小，超出目标的卡片淘汰后不再替换
+        return fillPool().thenCompose(v -> rotateBatch(candidates, to));
+    }
+
+    /**
+     * 池中卡片是否已达到就绪所需的最小数量，达到一次后保持就绪
+     */
+    public boolean isWarmedUp() {
+        return warmedUp.get();
+    }
+
+    /**
+     * 按观察到的取用峰值速率调整目标大小，保证池中卡片足以覆盖cover-seconds内的需求
+     */
+    @Scheduled(fixedDelayString = "${card-pool.resize-interval:10000}", initialDelayString = "${card-pool.resize-interval:10000}")
+    public void adjustTargetSize() {
+        double peakRate = checkoutTracker.peakRatePerSecond();
+        int desired = (int) Math.ceil(peakRate * cardPoolProperties.getCoverSeconds());
+        int newTarget = Math.max(cardPoolProperties.getMinSize(), Math.min(cardPoolProperties.getMaxSize(), desired));
+        // 启动后还没有完整窗口的取用数据，峰值速率偏低，不低于初始大小
+        if (System.currentTimeMillis() - startTime < cardPoolProperties.getDemandWindowSeconds() * 1000L) {
+            newTarget = Math.max(newTarget, initialTargetSize);
+        }
+        int oldTarget = targetSize.getAndSet(newTarget);
+        if (oldTarget != newTarget) {
+            log.info("[CardPool] Target size adjusted from {} to {} (peak checkout rate {}/s), current size: {}",
+                    oldTarget, newTarget, String.format("%.2f", peakRate), poolSize.get());
+        }
+        // 扩容时立即补充；缩容时不主动丢弃卡片，只是不再补充
         fillPool();
     }
 
-    private void fillPool() {
+    public int getTargetSize() {
+        return targetSize.get();
+    }
+
+    private CompletableFuture<Void> fillPool() {
+        int target = targetSize.get();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
         while (true) {
-            int currentSize = poolSize.get();
-            if (currentSize >= INITIAL_POOL_SIZE) {
-                log.info("[CardPool] Pool filled to target size: {} at {}", 
-                        INITIAL_POOL_SIZE, 
-                        LocalDateTime.now().format(timeFormatter));
+            int pending = pendingCreations.get();
+            if (poolSize.get() + pending >= target) {
                 break;
             }
-
-            LocalDateTime cardStartTime = LocalDateTime.now();
-            log.info("[CardPool] >>>>> Creating card {}/{} at {}", 
-                    currentSize + 1, 
-                    INITIAL_POOL_SIZE, 
-                    cardStartTime.format(timeFormatter));
-
-            try {
-                createCardWithRetry();
-                log.info("[CardPool] <<<<< Card {}/{} created successfully in {} seconds",
-                        currentSize + 1,
-                        INITIAL_POOL_SIZE,
-                        java.time.Duration.between(cardStartTime, LocalDateTime.now()).getSeconds());
-            } catch (Exception e) {
-                log.error("[CardPool] !!!!! Failed to create card {}/{}: {}", 
-                        currentSize + 1, 
-                        INITIAL_POOL_SIZE, 
-                        e.getMessage());
+            if (!pendingCreations.compareAndSet(pending, pending + 1)) {
                 continue;
             }
 
+            int cardIndex = poolSize.get() + pending + 1;
             try {
-                Thread.sleep(100); // 避免创建过快
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    LocalDateTime cardStartTime = LocalDateTime.now();
+                    try {
+                        createCardWithRetry(FeishuRateLimiter.Priority.BACKGROUND);
+                        log.info("[CardPool] <<<<< Card {}/{} created successfully in {} seconds",
+                                cardIndex,
+                                target,
+                                java.time.Duration.between(cardStartTime, LocalDateTime.now()).getSeconds());
+                    } catch (Exception e) {
+                        log.error("[CardPool] !!!!! Failed to create card {}/{}: {}", 
+                                cardIndex, 
+                                target, 
+                                e.getMessage());
+                    } finally {
+                        pendingCreations.decrementAndGet();
+                    }
+                }, cardPoolFillExecutor));
+            } catch (RejectedExecutionException e) {
+                // 执行器已满，等下次补充
+                pendingCreations.decrementAndGet();
+                log.warn("[CardPool] Card pool fill executor is saturated, pool fill deferred");
                 break;
             }
         }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
     }
 
-    private void createCardWithRetry() throws Exception {
+    private void createCardWithRetry(FeishuRateLimiter.Priority priority) throws Exception {
         Exception lastException = null;
+        int maxRetries = cardPoolProperties.getMaxRetries();
         
-        for (int i = 0; i < MAX_RETRIES; i++) {
+        for (int i = 0; i < maxRetries; i++) {
             if (i > 0) {
-                Thread.sleep(RETRY_INTERVAL);
+                Thread.sleep(cardPoolProperties.getRetryInterval());
             }
 
             log.info("[CardPool] Attempting to create card (attempt {}/{}) at {}", 
                     i + 1, 
-                    MAX_RETRIES, 
+                    maxRetries, 
                     LocalDateTime.now().format(timeFormatter));
             
             try {
-                FeishuCard card = createCard();
+                FeishuCard card = createCard(priority);
                 card.setExpireTime(System.currentTimeMillis() + 24 * 60 * 60 * 1000); // 24小时过期
                 
                 cardPool.offer(card);
-                poolSize.incrementAndGet();
+                int size = poolSize.incrementAndGet();
+                if (size >= cardPoolProperties.getReadyMinSize() && warmedUp.compareAndSet(false, true)) {
+                    log.info("[CardPool] Pool reached ready size {} at {}", 
+                            size, 
+                            LocalDateTime.now().format(timeFormatter));
+                }
                 
                 log.info("[CardPool] Successfully created and added new card to pool - ID: {}, Status: {}, at {}", 
                         card.getCardId(),
@@ -133,48 +336,37 @@ public class CardPool {
                 lastException = e;
                 log.error("[CardPool] Failed to create card (attempt {}/{}): {}", 
                         i + 1, 
-                        MAX_RETRIES, 
+                        maxRetries, 
                         e.getMessage());
             }
         }
 
-        throw new Exception("Failed to create card after " + MAX_RETRIES + " attempts", lastException);
+        throw new Exception("Failed to create card after " + maxRetries + " attempts", lastException);
     }
 
     public FeishuCard getCard() {
-        FeishuCard card = cardPool.poll();
+        checkoutTracker.record();
+        FeishuCard card = pollUnexpired();
         if (card != null) {
-            poolSize.decrementAndGet();
+            hitCounter.increment();
             log.info("[CardPool] Got card from pool: {}, remaining cards: {} at {}", 
                     card.getCardId(), 
                     poolSize.get(), 
                     LocalDateTime.now().format(timeFormatter));
 
-            // 异步创建新卡片补充到池中
-            CompletableFuture.runAsync(() -> {
-                try {
-                    createCardWithRetry();
-                } catch (Exception e) {
-                    log.error("Failed to create replacement card: {}", e.getMessage());
-                    // 继续尝试创建，避免池子逐渐缩小
-                    CompletableFuture.runAsync(() -> {
-                        try {
-                            createCardWithRetry();
-                        } catch (Exception ex) {
-                            log.error("Failed to create replacement card in second attempt: {}", ex.getMessage());
-                        }
-                    });
-                }
-            });
+            // 异步补充到当前目标大小
+            fillPool();
 
             return card;
         }
 
         // 如果没有可用卡片，同步创建一个
+        missCounter.increment();
         log.info("[CardPool] No cards available in pool, creating new one at {}", 
                 LocalDateTime.now().format(timeFormatter));
         try {
-            createCardWithRetry();
+            // 用户正在等待，不受后台补充的保留额度限制
+            createCardWithRetry(FeishuRateLimiter.Priority.USER);
             card = cardPool.poll();
             if (card != null) {
                 poolSize.decrementAndGet();
@@ -186,6 +378,18 @@ public class CardPool {
         }
     }
 
+    private FeishuCard pollUnexpired() {
+        FeishuCard card;
+        while ((card = cardPool.poll()) != null) {
+            poolSize.decrementAndGet();
+            if (!card.isExpired()) {
+                return card;
+            }
+            log.info("[CardPool] Discarding expired card: {}", card.getCardId());
+        }
+        return null;
+    }
+
     public int getPoolSize() {
         return poolSize.get();
     }
@@ -196,47 +400,10 @@ public class CardPool {
                 // 直接创建消息卡片
                 String url = feishuProperties.getApiEndpoint() + "/cardkit/v1/cards";
                 
-                // 构建卡片实体
-                Map<String, Object> cardData = new HashMap<>();
-                cardData.put("schema", "2.0");
-                
-                // Header
-                Map<String, Object> header = new HashMap<>();
-                Map<String, Object> title = new HashMap<>();
-                title.put("content", "AI助手");
-                title.put("tag", "plain_text");
-                header.put("title", title);
-                cardData.put("header", header);
-                
-                // Config
-                Map<String, Object> config = new HashMap<>();
-                config.put("streaming_mode", true);
-                Map<String, String> summary = new HashMap<>();
-                summary.put("content", "[生成中]");
-                config.put("summary", summary);
-                cardData.put("config", config);
-                
-                // Body
-                Map<String, Object> bodyContent = new HashMap<>();
-                List<Map<String, String>> elements = new ArrayList<>();
-                Map<String, String> markdown = new HashMap<>();
-                markdown.put("tag", "markdown");
-                markdown.put("content", "");
-                markdown.put("element_id", "markdown_1");
-                elements.add(markdown);
-                bodyContent.put("elements", elements);
-                cardData.put("body", bodyContent);
-
-                Map<String, Object> request = new HashMap<>();
-                request.put("type", "card_json");
-                request.put("data", objectMapper.writeValueAsString(cardData));
-
-                RequestBody requestBody = RequestBody.create(
-                    MediaType.parse("application/json"),
-                    objectMapper.writeValueAsString(request)
-                );
-
-                String token = getAccessToken();
+                RequestBody requestBody = cardTemplates.createCardRequestBody(CardTemplate.STREAMING_ANSWER);
+
+                rateLimiter.acquire(FeishuRateLimiter.Api.CARD_CREATE, null, FeishuRateLimiter.Priority.USER);
+                String token = tokenManager.getAccessToken();
                 Request httpRequest = new Request.Builder()
                     .url(url)
                     .addHeader("Authorization", "Bearer " + token)
@@ -244,6 +411,11 @@ public class CardPool {
                     .build();
 
                 Response response = httpClient.newCall(httpRequest).execute();
+                if (response.code() == Constants.HTTP_TOO_MANY_REQUESTS) {
+                    rateLimiter.backoff(FeishuRateLimiter.Api.CARD_CREATE, null, response);
+                    response.close();
+                    throw new Exception("Card creation throttled by Feishu");
+                }
                 if (!response.isSuccessful() || response.body() == null) {
                     String errorMsg = response.body() != null ? response.body().string() : "Unknown error";
                     log.error("[CardCreator] Failed to create card: {}", errorMsg);
@@ -266,53 +438,16 @@ public class CardPool {
                 log.error("[CardPool] Error creating card for message: {}", e.getMessage());
                 throw new RuntimeException("Error creating card for message", e);
             }
-        });
+        }, cardCreationExecutor);
     }
 
-    private FeishuCard createCard() throws Exception {
+    private FeishuCard createCard(FeishuRateLimiter.Priority priority) throws Exception {
         String url = feishuProperties.getApiEndpoint() + "/cardkit/v1/cards";
         
-        // 构建卡片实体
-        Map<String, Object> cardData = new HashMap<>();
-        cardData.put("schema", "2.0");
-        
-        // Header
-        Map<String, Object> header = new HashMap<>();
-        Map<String, Object> title = new HashMap<>();
-        title.put("content", "AI助手");
-        title.put("tag", "plain_text");
-        header.put("title", title);
-        cardData.put("header", header);
-        
-        // Config
-        Map<String, Object> config = new HashMap<>();
-        config.put("streaming_mode", true);
-        Map<String, String> summary = new HashMap<>();
-        summary.put("content", "[生成中]");
-        config.put("summary", summary);
-        cardData.put("config", config);
-        
-        // Body
-        Map<String, Object> bodyContent = new HashMap<>();
-        List<Map<String, String>> elements = new ArrayList<>();
-        Map<String, String> markdown = new HashMap<>();
-        markdown.put("tag", "markdown");
-        markdown.put("content", "");
-        markdown.put("element_id", "markdown_1");
-        elements.add(markdown);
-        bodyContent.put("elements", elements);
-        cardData.put("body", bodyContent);
-
-        Map<String, Object> request = new HashMap<>();
-        request.put("type", "card_json");
-        request.put("data", objectMapper.writeValueAsString(cardData));
-
-        RequestBody requestBody = RequestBody.create(
-            MediaType.parse("application/json"),
-            objectMapper.writeValueAsString(request)
-        );
-
-        String token = getAccessToken();
+        RequestBody requestBody = cardTemplates.createCardRequestBody(CardTemplate.STREAMING_ANSWER);
+
+        rateLimiter.acquire(FeishuRateLimiter.Api.CARD_CREATE, null, priority);
+        String token = tokenManager.getAccessToken();
         Request httpRequest = new Request.Builder()
             .url(url)
             .addHeader("Authorization", "Bearer " + token)
@@ -320,6 +455,11 @@ public class CardPool {
             .build();
 
         try (Response response = httpClient.newCall(httpRequest).execute()) {
+            if (response.code() == Constants.HTTP_TOO_MANY_REQUESTS) {
+                // 暂停创建令牌桶，重试时会等到频控窗口重置
+                rateLimiter.backoff(FeishuRateLimiter.Api.CARD_CREATE, null, response);
+                throw new Exception("Card creation throttled by Feishu");
+            }
             if (!response.isSuccessful() || response.body() == null) {
                 String errorMsg = response.body() != null ? response.body().string() : "Unknown error";
                 log.error("[CardCreator] Failed to create card: {}", errorMsg);
@@ -339,32 +479,4 @@ public class CardPool {
             return card;
         }
     }
-
-    private String getAccessToken() throws Exception {
-        String url = feishuProperties.getApiEndpoint() + "/auth/v3/tenant_access_token/internal";
-        
-        Map<String, String> requestBody = new HashMap<>();
-        requestBody.put("app_id", feishuProperties.getAppId());
-        requestBody.put("app_secret", feishuProperties.getAppSecret());
-
-        RequestBody body = RequestBody.create(
-            MediaType.parse("application/json"),
-            objectMapper.writeValueAsString(requestBody)
-        );
-
-        Request request = new Request.Builder()
-            .url(url)
-            .post(body)
-            .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful() || response.body() == null) {
-                throw new Exception("Failed to get access token");
-            }
-
-            String responseBody = response.body().string();
-            Map<String, Object> responseMap = objectMapper.readValue(responseBody, Map.class);
-            return (String) responseMap.get("tenant_access_token");
-        }
-    }
 }
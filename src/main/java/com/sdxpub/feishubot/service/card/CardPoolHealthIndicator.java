@@ -0,0 +1,28 @@
+package com.sdxpub.feishubot.service.card;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * 卡片池就绪检查
+ * 初始填充达到最小数量之前返回WARMING_UP。该状态只在readiness组中映射为503，
+ * 整体健康和liveness中排在UP之后，预热期间不会被判定为不健康。
+ */
+@Component
+public class CardPoolHealthIndicator implements HealthIndicator {
+    public static final Status WARMING_UP = new Status("WARMING_UP", "Card pool is warming up");
+
+    private final CardPool cardPool;
+
+    public CardPoolHealthIndicator(CardPool cardPool) {
+        this.cardPool = cardPool;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = cardPool.isWarmedUp() ? Health.up() : Health.status(WARMING_UP);
+        return builder.withDetail("poolSize", cardPool.getPoolSize()).build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.sdxpub.feishubot.service.card;
+
+import com.sdxpub.feishubot.model.feishu.FeishuCard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 卡片池本地快照
+ * 每行一张卡片：cardId + 制表符 + 过期时间戳，用于重启后复用未过期的卡片
+ */
+class CardPoolSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(CardPoolSnapshot.class);
+
+    private final Path file;
+
+    CardPoolSnapshot(Path file) {
+        this.file = file;
+    }
+
+    void write(Collection<FeishuCard> cards) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        // 先写临时文件再原子替换，避免中途退出留下半个快照
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (FeishuCard card : cards) {
+                writer.write(card.getCardId());
+                writer.write('\t');
+                writer.write(Long.toString(card.getExpireTime()));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取快照中剩余有效期不少于minRemainingMillis的卡片，读取后删除快照，避免同一批卡片被重复使用
+     */
+    List<FeishuCard> readAndDelete(long minRemainingMillis) throws IOException {
+        List<FeishuCard> cards = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return cards;
+        }
+
+        long threshold = System.currentTimeMillis() + minRemainingMillis;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    long expireTime = Long.parseLong(line.substring(tab + 1).trim());
+                    if (expireTime < threshold) {
+                        continue;
+                    }
+                    FeishuCard card = FeishuCard.createNew("system", "pool-" + System.currentTimeMillis());
+                    card.setReady(line.substring(0, tab));
+                    card.setExpireTime(expireTime);
+                    cards.add(card);
+                } catch (NumberFormatException e) {
+                    log.warn("[CardPool] Ignoring malformed snapshot line: {}", line);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return cards;
+    }
+}
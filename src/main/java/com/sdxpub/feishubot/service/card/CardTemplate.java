@@ -0,0 +1,11 @@
+package com.sdxpub.feishubot.service.card;
+
+/**
+ * 内容固定的卡片模板，由CardTemplateRegistry在启动时预先编码
+ */
+public enum CardTemplate {
+    // 流式回答卡片，回答内容写入markdown_1元素
+    STREAMING_ANSWER,
+    // 过载时回复的繁忙提示
+    BUSY_NOTICE
+}
@@ -0,0 +1,117 @@
+package com.sdxpub.feishubot.service.card;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sdxpub.feishubot.common.constants.Constants;
+import com.sdxpub.feishubot.common.utils.JsonStrings;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 卡片模板注册表
+ * 每个模板的卡片JSON在启动时编码一次，创建卡片和发送卡片消息时直接复用编码后的字节，不再逐次构建和序列化。
+ */
+@Component
+public class CardTemplateRegistry {
+    // 流式回答写入的元素ID
+    public static final String STREAMING_ELEMENT_ID = "markdown_1";
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private static final class Encoded {
+        // cardkit创建卡片实体的请求体
+        private final ByteString createRequest;
+        // 卡片消息请求体中receive_id之前的部分
+        private final ByteString messagePrefix;
+
+        private Encoded(ByteString createRequest, ByteString messagePrefix) {
+            this.createRequest = createRequest;
+            this.messagePrefix = messagePrefix;
+        }
+    }
+
+    private static final ByteString MESSAGE_SUFFIX = ByteString.encodeUtf8("\"}");
+
+    private final ObjectMapper objectMapper;
+    private final Map<CardTemplate, Encoded> templates = new EnumMap<>(CardTemplate.class);
+
+    public CardTemplateRegistry(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.objectMapper = objectMapper;
+        register(CardTemplate.STREAMING_ANSWER, streamingAnswer());
+        register(CardTemplate.BUSY_NOTICE, busyNotice());
+    }
+
+    /**
+     * cardkit创建卡片实体的请求体
+     */
+    public RequestBody createCardRequestBody(CardTemplate template) {
+        return RequestBody.create(templates.get(template).createRequest, JSON_MEDIA_TYPE);
+    }
+
+    /**
+     * 直接以卡片JSON发送的interactive消息请求体，只有receive_id需要逐次转义
+     */
+    public RequestBody messageRequestBody(CardTemplate template, String receiveId) {
+        Buffer json = new Buffer();
+        json.write(templates.get(template).messagePrefix);
+        try {
+            JsonStrings.writeEscaped(json, receiveId);
+        } catch (IOException e) {
+            // 写入内存Buffer不会发生IO异常
+            throw new UncheckedIOException(e);
+        }
+        json.write(MESSAGE_SUFFIX);
+        return RequestBody.create(json.readByteString(), JSON_MEDIA_TYPE);
+    }
+
+    private void register(CardTemplate template, ObjectNode card) throws JsonProcessingException {
+        String cardJson = objectMapper.writeValueAsString(card);
+
+        ObjectNode createRequest = objectMapper.createObjectNode();
+        createRequest.put("type", "card_json");
+        createRequest.put("data", cardJson);
+
+        // receive_id放在最后，前面的部分整体预编码
+        String content = objectMapper.writeValueAsString(cardJson);
+        String messagePrefix = "{\"msg_type\":\"interactive\",\"content\":" + content + ",\"receive_id\":\"";
+
+        templates.put(template, new Encoded(
+                ByteString.of(objectMapper.writeValueAsBytes(createRequest)),
+                ByteString.encodeUtf8(messagePrefix)));
+    }
+
+    private ObjectNode streamingAnswer() {
+        ObjectNode card = objectMapper.createObjectNode();
+        card.put("schema", "2.0");
+
+        ObjectNode title = card.putObject("header").putObject("title");
+        title.put("content", "AI助手");
+        title.put("tag", "plain_text");
+
+        ObjectNode config = card.putObject("config");
+        config.put("streaming_mode", true);
+        config.putObject("summary").put("content", "[生成中]");
+
+        ObjectNode markdown = card.putObject("body").putArray("elements").addObject();
+        markdown.put("tag", "markdown");
+        markdown.put("content", "");
+        markdown.put("element_id", STREAMING_ELEMENT_ID);
+        return card;
+    }
+
+    private ObjectNode busyNotice() {
+        ObjectNode card = objectMapper.createObjectNode();
+        ObjectNode markdown = card.putArray("elements").addObject();
+        markdown.put("tag", "markdown");
+        markdown.put("content", Constants.FEISHU_BUSY_NOTICE);
+        return card;
+    }
+}
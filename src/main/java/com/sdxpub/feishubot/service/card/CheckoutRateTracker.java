@@ -0,0 +1,45 @@
+package com.sdxpub.feishubot.service.card;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 卡片取用速率统计
+ * 将滑动窗口划分为固定数量的时间桶，记录与查询均为无锁操作
+ */
+class CheckoutRateTracker {
+    private final long bucketMillis;
+    private final AtomicLongArray counts;
+    // 每个桶当前对应的时间片编号，用于识别并重置过期的桶
+    private final AtomicLongArray slots;
+
+    CheckoutRateTracker(long windowMillis, int bucketCount) {
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        this.counts = new AtomicLongArray(bucketCount);
+        this.slots = new AtomicLongArray(bucketCount);
+    }
+
+    void record() {
+        long slot = System.currentTimeMillis() / bucketMillis;
+        int index = (int) (slot % counts.length());
+        long current = slots.get(index);
+        if (current != slot && slots.compareAndSet(index, current, slot)) {
+            counts.set(index, 0);
+        }
+        counts.incrementAndGet(index);
+    }
+
+    /**
+     * 窗口内单个时间桶的峰值速率（次/秒）
+     */
+    double peakRatePerSecond() {
+        long now = System.currentTimeMillis() / bucketMillis;
+        long peak = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long slot = slots.get(i);
+            if (now - slot < counts.length()) {
+                peak = Math.max(peak, counts.get(i));
+            }
+        }
+        return peak * 1000.0 / bucketMillis;
+    }
+}
@@ -0,0 +1,90 @@
+package com.sdxpub.feishubot.service.dify.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sdxpub.feishubot.model.dify.DifyRequest;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Dify对话请求体
+ * 用JsonGenerator把DifyRequest的字段直接写入okio Buffer，由Jackson负责转义，不经过中间字符串。
+ * 发送时只复制Buffer的分段引用，OkHttp重试时可以重复写出。
+ */
+class DifyRequestBody extends RequestBody {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private final Buffer json;
+
+    private DifyRequestBody(Buffer json) {
+        this.json = json;
+    }
+
+    static DifyRequestBody of(DifyRequest request) throws IOException {
+        Buffer json = new Buffer();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json.outputStream())) {
+            generator.writeStartObject();
+            writeInputs(generator, request.getInputs());
+            generator.writeStringField("query", request.getQuery());
+            generator.writeStringField("user", request.getUser());
+            generator.writeStringField("response_mode", request.getResponseMode());
+            if (request.getConversationId() != null) {
+                generator.writeStringField("conversation_id", request.getConversationId());
+            }
+            writeFiles(generator, request.getFiles());
+            generator.writeEndObject();
+        }
+        return new DifyRequestBody(json);
+    }
+
+    private static void writeInputs(JsonGenerator generator, DifyRequest.Inputs inputs) throws IOException {
+        // Dify要求inputs字段必须存在
+        generator.writeObjectFieldStart("inputs");
+        if (inputs != null && inputs.getHistory() != null) {
+            generator.writeStringField("history", inputs.getHistory());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeFiles(JsonGenerator generator, List<DifyRequest.File> files) throws IOException {
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        generator.writeArrayFieldStart("files");
+        for (DifyRequest.File file : files) {
+            generator.writeStartObject();
+            generator.writeStringField("type", file.getType());
+            generator.writeStringField("transfer_method", file.getTransferMethod());
+            if (file.getUrl() != null) {
+                generator.writeStringField("url", file.getUrl());
+            }
+            if (file.getUploadFileId() != null) {
+                generator.writeStringField("upload_file_id", file.getUploadFileId());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON_MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        return json.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        json.copyTo(sink.getBuffer(), 0, json.size());
+        sink.emitCompleteSegments();
+    }
+}
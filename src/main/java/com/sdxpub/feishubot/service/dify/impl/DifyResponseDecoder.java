@@ -0,0 +1,115 @@
+package com.sdxpub.feishubot.service.dify.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.sdxpub.feishubot.model.dify.DifyResponse;
+import okio.Buffer;
+
+import java.io.IOException;
+
+/**
+ * Dify流式事件解码器，每个流一个实例，非线程安全
+ * 使用同一个非阻塞JsonParser连续解析每个事件，只读取用到的字段，metadata等子树直接跳过。
+ */
+class DifyResponseDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INITIAL_CHUNK_SIZE = 4096;
+
+    private JsonParser parser;
+    private ByteArrayFeeder feeder;
+    private byte[] chunk = new byte[INITIAL_CHUNK_SIZE];
+
+    DifyResponseDecoder() throws IOException {
+        resetParser();
+    }
+
+    /**
+     * 解码一个完整的事件JSON，并消费data中的全部字节
+     */
+    DifyResponse decode(Buffer data) throws IOException {
+        int length = (int) data.size();
+        if (chunk.length < length) {
+            chunk = new byte[Math.max(length, chunk.length * 2)];
+        }
+        int read = 0;
+        while (read < length) {
+            read += data.read(chunk, read, length - read);
+        }
+
+        try {
+            feeder.feedInput(chunk, 0, length);
+            return readEvent();
+        } catch (IOException | RuntimeException e) {
+            // 解析失败后parser状态不可用，重建后继续处理后续事件
+            resetParser();
+            throw e;
+        }
+    }
+
+    private DifyResponse readEvent() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object in Dify event");
+        }
+
+        DifyResponse response = new DifyResponse();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "event":
+                    response.setEvent(textValue());
+                    break;
+                case "answer":
+                    response.setAnswer(textValue());
+                    break;
+                case "conversation_id":
+                    response.setConversationId(textValue());
+                    break;
+                case "id":
+                    response.setId(textValue());
+                    break;
+                case "task_id":
+                    response.setTask(textValue());
+                    break;
+                case "message":
+                    response.setMessage(textValue());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Incomplete Dify event");
+        }
+
+        // 消费对象之后的空白，保证下一次可以继续喂入数据
+        if (!feeder.needMoreInput() && parser.nextToken() != JsonToken.NOT_AVAILABLE) {
+            throw new JsonParseException(parser, "Unexpected content after Dify event");
+        }
+        return response;
+    }
+
+    private String textValue() throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private void resetParser() throws IOException {
+        if (parser != null) {
+            parser.close();
+        }
+        parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+}
@@ -1,5 +1,6 @@
 package com.sdxpub.feishubot.service.dify.impl;
 
+import com.sdxpub.feishubot.common.constants.Constants;
 import com.sdxpub.feishubot.common.exception.BotException;
 import com.sdxpub.feishubot.common.exception.ErrorCode;
 import com.sdxpub.feishubot.config.DifyProperties;
@@ -8,18 +9,20 @@ import com.sdxpub.feishubot.model.dify.DifyRequest;
 import com.sdxpub.feishubot.model.dify.DifyResponse;
 import com.sdxpub.feishubot.model.message.Message;
 import com.sdxpub.feishubot.service.dify.DifyService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 @Service
@@ -28,11 +31,33 @@ public class DifyServiceImpl implements DifyService {
 
     private final DifyProperties difyProperties;
     private final OkHttpClient httpClient;
+    private final ExecutorService difyStreamExecutor;
     private final Map<String, String> conversationCache = new ConcurrentHashMap<>();
+    private final Timer firstTokenTimer;
+    private final Timer streamCompleteTimer;
+    private final Timer streamErrorTimer;
+    private final Counter malformedEventCounter;
 
-    public DifyServiceImpl(DifyProperties difyProperties, OkHttpClient httpClient) {
+    public DifyServiceImpl(DifyProperties difyProperties, OkHttpClient difyHttpClient, ExecutorService difyStreamExecutor,
+            MeterRegistry meterRegistry) {
         this.difyProperties = difyProperties;
-        this.httpClient = httpClient;
+        this.httpClient = difyHttpClient;
+        this.difyStreamExecutor = difyStreamExecutor;
+        this.firstTokenTimer = Timer.builder("feishubot.dify.first.token")
+                .description("Time from sending a Dify request to receiving the first answer chunk")
+                .register(meterRegistry);
+        this.streamCompleteTimer = streamTimer(meterRegistry, "complete");
+        this.streamErrorTimer = streamTimer(meterRegistry, "error");
+        this.malformedEventCounter = Counter.builder("feishubot.dify.events.malformed")
+                .description("Dify stream events that could not be decoded and were skipped")
+                .register(meterRegistry);
+    }
+
+    private static Timer streamTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("feishubot.dify.stream")
+                .description("Duration of a Dify streaming response")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     @Override
@@ -50,32 +75,36 @@ public class DifyServiceImpl implements DifyService {
     @Override
     public void sendRequest(DifyRequest request, Consumer<DifyResponse> onResponse) {
         try {
-            RequestBody requestBody = createRequestBody(request);
+            RequestBody requestBody = DifyRequestBody.of(request);
             Request httpRequest = new Request.Builder()
                     .url("http://dify.sdx.pub/v1/chat-messages")
                     .addHeader("Authorization", "Bearer " + difyProperties.getApiKey())
                     .post(requestBody)
                     .build();
 
-            httpClient.newCall(httpRequest).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    logger.error("Failed to send request to Dify: {}", e.getMessage());
-                    throw new BotException(ErrorCode.DIFY_API_ERROR, e.getMessage());
-                }
+            // 流式响应需要一直占用读取线程，由有界的Dify流执行器限制同时进行的流数量
+            Call call = httpClient.newCall(httpRequest);
+            long startNanos = System.nanoTime();
+            difyStreamExecutor.execute(() -> {
+                Timer streamTimer = streamErrorTimer;
+                try (Response response = call.execute()) {
+                    if (!response.isSuccessful()) {
+                        String error = response.body() != null ? response.body().string() : "Unknown error";
+                        throw new BotException(ErrorCode.DIFY_API_ERROR, error);
+                    }
 
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    try {
-                        if (!response.isSuccessful()) {
-                            String error = response.body() != null ? response.body().string() : "Unknown error";
-                            throw new BotException(ErrorCode.DIFY_API_ERROR, error);
-                        }
-
-                        handleStreamingResponse(response, request.getUser(), onResponse);
-                    } finally {
-                        response.close();
+                    if (!handleStreamingResponse(response, request.getUser(), startNanos, onResponse)) {
+                        throw new BotException(ErrorCode.DIFY_RESPONSE_ERROR, "Stream ended without message_end");
                     }
+                    streamTimer = streamCompleteTimer;
+                } catch (IOException e) {
+                    logger.error("Failed to send request to Dify: {}", e.getMessage());
+                    notifyStreamError(onResponse, e.getMessage());
+                } catch (RuntimeException e) {
+                    logger.error("Failed to handle Dify response: {}", e.getMessage());
+                    notifyStreamError(onResponse, e.getMessage());
+                } finally {
+                    streamTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
                 }
             });
         } catch (Exception e) {
@@ -118,102 +147,63 @@ public class DifyServiceImpl implements DifyService {
         return conversationCache.containsKey(userId);
     }
 
-    private RequestBody createRequestBody(DifyRequest request) {
-        MediaType mediaType = MediaType.parse("application/json");
-        String jsonBody = String.format(
-            "{\"inputs\":{\"history\":\"null\"},\"query\":\"%s\",\"user\":\"%s\",\"response_mode\":\"streaming\"%s}",
-            request.getQuery().replace("\"", "\\\""),
-            request.getUser(),
-            request.getConversationId() != null ? ",\"conversation_id\":\"" + request.getConversationId() + "\"" : ""
-        );
-        return RequestBody.create(mediaType, jsonBody);
-    }
-
-    private static final long SEND_INTERVAL = 100;
-    private static final long BUFFER_TIMEOUT = SEND_INTERVAL * 3;
-    private final Map<String, Long> lastSendTimeMap = new ConcurrentHashMap<>();
-    private final Map<String, Timer> bufferTimers = new ConcurrentHashMap<>();
-
-    private void sendBufferedMessage(String userId, StringBuilder messageBuffer, Consumer<DifyResponse> onResponse, String conversationId) {
-        long currentTime = System.currentTimeMillis();
-        Long lastSendTime = lastSendTimeMap.get(userId);
-        
-        if (lastSendTime == null || currentTime - lastSendTime >= SEND_INTERVAL) {
-            DifyResponse bufferedResponse = new DifyResponse(
-                "agent_message",
-                null,
-                null,
-                messageBuffer.toString(),
-                conversationId,
-                null,
-                null
-            );
-            onResponse.accept(bufferedResponse);
-            messageBuffer.setLength(0);
-            lastSendTimeMap.put(userId, currentTime);
-        }
-    }
-
-    private void resetBufferTimer(String userId, StringBuilder messageBuffer, Consumer<DifyResponse> onResponse, String conversationId) {
-        Timer oldTimer = bufferTimers.get(userId);
-        if (oldTimer != null) {
-            oldTimer.cancel();
-        }
-
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (messageBuffer.length() > 0) {
-                    sendBufferedMessage(userId, messageBuffer, onResponse, conversationId);
-                }
-                timer.cancel();
-                bufferTimers.remove(userId);
-            }
-        }, BUFFER_TIMEOUT);
-        
-        bufferTimers.put(userId, timer);
-    }
-
-    private void handleStreamingResponse(Response response, String userId, Consumer<DifyResponse> onResponse) {
+    /**
+     * 读取流式响应，返回是否收到了结束事件
+     */
+    private boolean handleStreamingResponse(Response response, String userId, long startNanos,
+            Consumer<DifyResponse> onResponse) {
         try (ResponseBody responseBody = response.body()) {
             if (responseBody == null) {
                 throw new BotException(ErrorCode.DIFY_API_ERROR, "Empty response body");
             }
 
-            StringBuilder messageBuffer = new StringBuilder();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody.byteStream()));
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("data: ")) {
-                    String jsonData = line.substring(6);
-                    DifyResponse difyResponse = DifyResponse.fromJson(jsonData);
-                    handleResponse(difyResponse, userId);
-
-                    if ("agent_message".equals(difyResponse.getEvent())) {
-                        if (difyResponse.getAnswer() != null && !difyResponse.getAnswer().isEmpty()) {
-                            messageBuffer.append(difyResponse.getAnswer());
-                            resetBufferTimer(userId, messageBuffer, onResponse, difyResponse.getConversationId());
-                        }
-                    } else {
-                        if (messageBuffer.length() > 0) {
-                            sendBufferedMessage(userId, messageBuffer, onResponse, difyResponse.getConversationId());
-                        }
-                        
-                        if ("message_end".equals(difyResponse.getEvent())) {
-                            Timer timer = bufferTimers.remove(userId);
-                            if (timer != null) {
-                                timer.cancel();
-                            }
-                            removeConversation(userId);
-                            lastSendTimeMap.remove(userId);
-                        }
-                    }
+            DifyResponseDecoder responseDecoder = new DifyResponseDecoder();
+            AtomicBoolean finished = new AtomicBoolean(false);
+            AtomicBoolean answered = new AtomicBoolean(false);
+            SseEventDecoder decoder = new SseEventDecoder((eventType, data) -> {
+                DifyResponse difyResponse;
+                try {
+                    difyResponse = responseDecoder.decode(data);
+                } catch (IOException | RuntimeException e) {
+                    // 单个事件格式错误时跳过，解码器已重置，后续事件继续处理
+                    malformedEventCounter.increment();
+                    logger.warn("Skipping malformed Dify event for user {}: {}", userId, e.getMessage());
+                    return;
                 }
-            }
+                if (difyResponse.hasAnswer() && answered.compareAndSet(false, true)) {
+                    firstTokenTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                }
+                if (handleStreamEvent(difyResponse, userId, onResponse)) {
+                    finished.set(true);
+                }
+            });
+            decoder.decode(responseBody.source());
+            return finished.get();
         } catch (IOException e) {
             throw new BotException(ErrorCode.DIFY_API_ERROR, "Error reading streaming response: " + e.getMessage());
         }
     }
+
+    private boolean handleStreamEvent(DifyResponse difyResponse, String userId, Consumer<DifyResponse> onResponse) {
+        handleResponse(difyResponse, userId);
+
+        // 回答片段直接交给调用方，由消息缓冲区统一节流发送
+        onResponse.accept(difyResponse);
+
+        if (Constants.DIFY_EVENT_MESSAGE_END.equals(difyResponse.getEvent())) {
+            removeConversation(userId);
+            return true;
+        }
+        return Constants.DIFY_EVENT_ERROR.equals(difyResponse.getEvent());
+    }
+
+    /**
+     * 请求失败或流异常中断时通知调用方，使其结束本次对话
+     */
+    private void notifyStreamError(Consumer<DifyResponse> onResponse, String message) {
+        DifyResponse error = new DifyResponse();
+        error.setEvent(Constants.DIFY_EVENT_ERROR);
+        error.setMessage(message);
+        onResponse.accept(error);
+    }
 }
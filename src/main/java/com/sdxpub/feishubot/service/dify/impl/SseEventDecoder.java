@@ -0,0 +1,119 @@
+package com.sdxpub.feishubot.service.dify.impl;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * 基于字节的SSE解码器
+ * 直接在OkHttp的BufferedSource上按行切分，固定使用UTF-8，支持多行data、event、id字段及注释行。
+ * data字段的字节按段移动到事件缓冲区，不再为每行创建String。
+ */
+class SseEventDecoder {
+    private static final ByteString DATA = ByteString.encodeUtf8("data");
+    private static final ByteString EVENT = ByteString.encodeUtf8("event");
+    private static final ByteString ID = ByteString.encodeUtf8("id");
+
+    interface Listener {
+        /**
+         * 收到一个完整事件，data在回调返回后会被清空
+         */
+        void onEvent(String eventType, Buffer data) throws IOException;
+    }
+
+    private final Listener listener;
+    private final Buffer dataBuffer = new Buffer();
+    private String eventType;
+    private String lastEventId;
+    private boolean hasData;
+
+    SseEventDecoder(Listener listener) {
+        this.listener = listener;
+    }
+
+    void decode(BufferedSource source) throws IOException {
+        Buffer buffer = source.getBuffer();
+        while (true) {
+            long lineEnd = source.indexOf((byte) '\n');
+            if (lineEnd == -1) {
+                // 流结束：处理没有换行结尾的最后一行，并派发未以空行结束的事件
+                if (buffer.size() > 0) {
+                    processLine(buffer, buffer.size());
+                }
+                dispatch();
+                return;
+            }
+
+            long lineLength = lineEnd;
+            if (lineLength > 0 && buffer.getByte(lineLength - 1) == '\r') {
+                lineLength--;
+            }
+            processLine(buffer, lineLength);
+            buffer.skip(lineEnd + 1 - lineLength);
+        }
+    }
+
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * 处理buffer开头长度为length的一行，并从buffer中消费这些字节
+     */
+    private void processLine(Buffer buffer, long length) throws IOException {
+        if (length == 0) {
+            dispatch();
+            return;
+        }
+        if (buffer.getByte(0) == ':') {
+            buffer.skip(length);
+            return;
+        }
+
+        long colon = buffer.indexOf((byte) ':', 0, length);
+        long nameLength = colon == -1 ? length : colon;
+        long valueStart = colon == -1 ? length : colon + 1;
+        if (valueStart < length && buffer.getByte(valueStart) == ' ') {
+            valueStart++;
+        }
+        long valueLength = length - valueStart;
+
+        if (isField(buffer, nameLength, DATA)) {
+            if (hasData) {
+                dataBuffer.writeByte('\n');
+            }
+            hasData = true;
+            buffer.skip(valueStart);
+            dataBuffer.write(buffer, valueLength);
+        } else if (isField(buffer, nameLength, EVENT)) {
+            buffer.skip(valueStart);
+            eventType = buffer.readUtf8(valueLength);
+        } else if (isField(buffer, nameLength, ID)) {
+            buffer.skip(valueStart);
+            lastEventId = buffer.readUtf8(valueLength);
+        } else {
+            // retry及未知字段忽略
+            buffer.skip(length);
+        }
+    }
+
+    private static boolean isField(Buffer buffer, long nameLength, ByteString name) {
+        return nameLength == name.size() && buffer.rangeEquals(0, name);
+    }
+
+    private void dispatch() throws IOException {
+        if (!hasData) {
+            eventType = null;
+            return;
+        }
+        try {
+            listener.onEvent(eventType != null ? eventType : "message", dataBuffer);
+        } finally {
+            dataBuffer.clear();
+            eventType = null;
+            hasData = false;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.sdxpub.feishubot.service.feishu;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sdxpub.feishubot.common.constants.Constants;
+import com.sdxpub.feishubot.config.FeishuRateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 飞书接口客户端限流
+ * 卡片创建、消息发送按应用各用一个令牌桶，卡片内容更新按卡片各用一个令牌桶。
+ * 用户请求总是预约成功，令牌不足时透支并等待；后台流量只在余额高于保留额度时才取走令牌，
+ * 等待期间不扣减余额，保证用户可见的请求优先。
+ * 收到429后按飞书返回的重置时间暂停对应的令牌桶。
+ */
+@Slf4j
+@Component
+public class FeishuRateLimiter {
+
+    public enum Api {
+        CARD_CREATE,
+        MESSAGE_SEND,
+        CARD_UPDATE
+    }
+
+    public enum Priority {
+        // 用户正在等待的请求
+        USER,
+        // 卡片池填充、轮换等后台请求
+        BACKGROUND
+    }
+
+    private final FeishuRateLimitProperties properties;
+    private final ScheduledExecutorService scheduledExecutor;
+    private final TokenBucket cardCreateBucket;
+    private final TokenBucket messageSendBucket;
+    private final Cache<String, TokenBucket> cardUpdateBuckets = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+    private final Map<Api, Counter> throttledCounters = new EnumMap<>(Api.class);
+    private final Map<Api, Map<Priority, Timer>> waitTimers = new EnumMap<>(Api.class);
+
+    public FeishuRateLimiter(FeishuRateLimitProperties properties, ScheduledExecutorService scheduledExecutor,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.scheduledExecutor = scheduledExecutor;
+        this.cardCreateBucket = new TokenBucket(properties.getCardCreateQps(), properties.getCardCreateBurst());
+        this.messageSendBucket = new TokenBucket(properties.getMessageSendQps(), properties.getMessageSendBurst());
+        for (Api api : Api.values()) {
+            throttledCounters.put(api, Counter.builder("feishubot.ratelimit.throttled")
+                    .description("Feishu responses with HTTP 429")
+                    .tag("api", tagValue(api))
+                    .register(meterRegistry));
+            Map<Priority, Timer> timers = new EnumMap<>(Priority.class);
+            for (Priority priority : Priority.values()) {
+                timers.put(priority, Timer.builder("feishubot.ratelimit.wait")
+                        .description("Time spent waiting for a Feishu rate limit token")
+                        .tag("api", tagValue(api))
+                        .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            waitTimers.put(api, timers);
+        }
+    }
+
+    /**
+     * 阻塞等待令牌，用于同步调用
+     */
+    public void acquire(Api api, String key, Priority priority) throws InterruptedException {
+        long start = System.nanoTime();
+        TokenBucket bucket = bucket(api, key);
+        long waitNanos = tryReserve(bucket, priority);
+        while (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            // 用户请求的令牌已在预约时取走；后台请求等待期间未取走令牌，醒来后重新尝试
+            waitNanos = priority == Priority.USER ? 0 : tryReserve(bucket, priority);
+        }
+        recordWait(api, priority, start);
+    }
+
+    /**
+     * 异步等待令牌，等待期间不占用线程
+     */
+    public CompletableFuture<Void> acquireAsync(Api api, String key, Priority priority) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        acquireAsync(api, bucket(api, key), priority, System.nanoTime(), future);
+        return future;
+    }
+
+    private void acquireAsync(Api api, TokenBucket bucket, Priority priority, long start, CompletableFuture<Void> future) {
+        long waitNanos = tryReserve(bucket, priority);
+        if (waitNanos <= 0) {
+            recordWait(api, priority, start);
+            future.complete(null);
+        } else if (priority == Priority.USER) {
+            scheduledExecutor.schedule(() -> {
+                recordWait(api, priority, start);
+                future.complete(null);
+            }, waitNanos, TimeUnit.NANOSECONDS);
+        } else {
+            // 后台请求等待期间未取走令牌，到时重新尝试
+            scheduledExecutor.schedule(() -> acquireAsync(api, bucket, priority, start, future),
+                    waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 收到429后暂停对应的令牌桶，直到响应头给出的频控重置时间
+     */
+    public void backoff(Api api, String key, Response response) {
+        backoff(api, key, retryAfterMillis(response));
+    }
+
+    public void backoff(Api api, String key, long delayMillis) {
+        throttledCounters.get(api).increment();
+        log.warn("[RateLimiter] Feishu throttled {}, pausing for {} ms", key != null ? api + " " + key : api, delayMillis);
+        bucket(api, key).pause(TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    /**
+     * 飞书在429响应头中给出频控窗口的剩余秒数
+     */
+    private static long retryAfterMillis(Response response) {
+        String reset = response.header(Constants.FEISHU_RATE_LIMIT_RESET_HEADER);
+        if (reset != null) {
+            try {
+                return Math.max(0, Long.parseLong(reset.trim())) * 1000;
+            } catch (NumberFormatException e) {
+                log.warn("[RateLimiter] Invalid rate limit reset header: {}", reset);
+            }
+        }
+        return Constants.FEISHU_RATE_LIMIT_DEFAULT_BACKOFF_MS;
+    }
+
+    /**
+     * 用户请求：取走令牌并返回需要等待的时间；后台请求：返回0表示已取走令牌，否则返回重试前需要等待的时间
+     */
+    private long tryReserve(TokenBucket bucket, Priority priority) {
+        if (priority == Priority.USER) {
+            return bucket.reserve();
+        }
+        // 保留额度至多为容量减一，否则小容量的桶永远轮不到后台请求
+        double reserved = Math.min(bucket.capacity * properties.getBackgroundReserveRatio(), bucket.capacity - 1);
+        return bucket.tryReserve(Math.max(0, reserved));
+    }
+
+    private void recordWait(Api api, Priority priority, long start) {
+        waitTimers.get(api).get(priority).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private TokenBucket bucket(Api api, String key) {
+        switch (api) {
+            case CARD_CREATE:
+                return cardCreateBucket;
+            case MESSAGE_SEND:
+                return messageSendBucket;
+            default:
+                return cardUpdateBuckets.get(key, k ->
+                        new TokenBucket(properties.getCardUpdateQps(), properties.getCardUpdateBurst()));
+        }
+    }
+
+    private static String tagValue(Api api) {
+        return api.name().toLowerCase(Locale.ROOT).replace('_', '.');
+    }
+
+    /**
+     * 预约式令牌桶：用户请求令牌不足时允许透支，返回调用方需要等待的时间，后来者顺延
+     */
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(double qps, int burst) {
+            this.tokensPerNano = Math.max(qps, 0.001) / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(1, burst);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private synchronized long reserve() {
+            refill();
+            long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+            tokens -= 1;
+            return waitNanos;
+        }
+
+        /**
+         * 余额高于保留额度时取走一个令牌并返回0，否则不扣减，返回余额恢复到可取所需的时间
+         */
+        private synchronized long tryReserve(double reserved) {
+            refill();
+            double needed = 1 + reserved;
+            if (tokens >= needed) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((needed - tokens) / tokensPerNano));
+        }
+
+        private synchronized void pause(long nanos) {
+            refill();
+            // 透支到暂停结束时令牌刚好恢复为0
+            tokens = Math.min(tokens, -nanos * tokensPerNano);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -17,9 +17,15 @@ public interface FeishuService {
     CompletableFuture<Boolean> sendCard(Message message, FeishuCard card);
 
     /**
-     * 更新卡片内容
+     * 发送繁忙提示卡片，用于过载时拒绝处理的消息
      */
-    CompletableFuture<Boolean> updateCard(String cardId, String content);
+    CompletableFuture<Boolean> sendBusyNotice(Message message);
+
+    /**
+     * 更新卡片内容（全文），同一卡片同时最多一个请求在途，期间的多次更新合并为最新一次
+     * 返回false表示未生效：请求失败，或被更新的内容覆盖而未发出
+     */
+    CompletableFuture<Boolean> updateCard(FeishuCard card, CharSequence content);
 
     /**
      * 获取卡片信息
@@ -0,0 +1,225 @@
+package com.sdxpub.feishubot.service.feishu;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.common.exception.BotException;
+import com.sdxpub.feishubot.common.exception.ErrorCode;
+import com.sdxpub.feishubot.config.FeishuProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * tenant_access_token 管理器
+ * 缓存token及其有效期，并在过期前后台刷新，业务调用不再访问鉴权接口
+ */
+@Component
+public class TenantAccessTokenManager {
+    private static final Logger log = LoggerFactory.getLogger(TenantAccessTokenManager.class);
+    // 剩余有效期小于该值时后台刷新（飞书在剩余30分钟内才会签发新token）
+    private static final long REFRESH_AHEAD_MS = 10 * 60 * 1000;
+    // 使用前预留的安全时间，避免拿到即将过期的token
+    private static final long EXPIRE_SAFETY_MS = 60 * 1000;
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private final OkHttpClient httpClient;
+    private final FeishuProperties feishuProperties;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<CompletableFuture<CachedToken>> inflight = new AtomicReference<>();
+    private final Counter refreshCounter;
+    private final Counter collapsedCounter;
+
+    private volatile CachedToken cachedToken;
+
+    public TenantAccessTokenManager(OkHttpClient feishuHttpClient, FeishuProperties feishuProperties, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.httpClient = feishuHttpClient;
+        this.feishuProperties = feishuProperties;
+        this.objectMapper = objectMapper;
+        this.refreshCounter = Counter.builder("feishubot.token.refresh")
+                .description("tenant_access_token requests sent to the auth endpoint")
+                .register(meterRegistry);
+        this.collapsedCounter = Counter.builder("feishubot.token.refresh.collapsed")
+                .description("Token refreshes that joined an in-flight request instead of calling the auth endpoint")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取可用的token，缓存有效时直接返回
+     */
+    public String getAccessToken() {
+        CachedToken token = cachedToken;
+        if (token != null && token.isUsable(System.currentTimeMillis())) {
+            return token.value;
+        }
+        try {
+            return refresh(false).join().value;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BotException) {
+                throw (BotException) e.getCause();
+            }
+            throw new BotException(ErrorCode.FEISHU_AUTH_ERROR, "Failed to get access token: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 异步获取可用的token，缓存失效时不阻塞调用线程
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+        CachedToken token = cachedToken;
+        if (token != null && token.isUsable(System.currentTimeMillis())) {
+            return CompletableFuture.completedFuture(token.value);
+        }
+        return refresh(false).thenApply(t -> t.value);
+    }
+
+    /**
+     * 定时检查，在token过期前主动刷新；只发起请求，不等待结果，避免占用调度线程
+     */
+    @Scheduled(fixedDelay = 60 * 1000, initialDelay = 60 * 1000)
+    public void refreshAhead() {
+        CachedToken token = cachedToken;
+        if (token != null && !token.needsRefresh(System.currentTimeMillis())) {
+            return;
+        }
+        refresh(true).whenComplete((t, e) -> {
+            if (e != null) {
+                log.error("[TokenManager] Background token refresh failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 单飞刷新：同一时刻只有一个线程请求鉴权接口，其他调用方等待同一个future
+     */
+    private CompletableFuture<CachedToken> refresh(boolean ahead) {
+        while (true) {
+            CompletableFuture<CachedToken> existing = inflight.get();
+            if (existing != null) {
+                collapsedCounter.increment();
+                return existing;
+            }
+
+            CompletableFuture<CachedToken> future = new CompletableFuture<>();
+            if (!inflight.compareAndSet(null, future)) {
+                continue;
+            }
+
+            // 再次检查，抢到刷新权之前可能已有其他线程完成了刷新
+            CachedToken current = cachedToken;
+            long now = System.currentTimeMillis();
+            if (current != null && (ahead ? !current.needsRefresh(now) : current.isUsable(now))) {
+                inflight.compareAndSet(future, null);
+                future.complete(current);
+                return future;
+            }
+
+            refreshCounter.increment();
+            fetchToken().whenComplete((token, e) -> {
+                if (e == null) {
+                    cachedToken = token;
+                    log.info("[TokenManager] Refreshed tenant_access_token, expires in {} seconds",
+                            (token.expireAt - System.currentTimeMillis()) / 1000);
+                }
+                inflight.compareAndSet(future, null);
+                if (e == null) {
+                    future.complete(token);
+                } else {
+                    future.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                }
+            });
+            return future;
+        }
+    }
+
+    private CompletableFuture<CachedToken> fetchToken() {
+        String url = feishuProperties.getApiEndpoint() + "/auth/v3/tenant_access_token/internal";
+
+        Map<String, String> requestBody = new HashMap<>();
+        requestBody.put("app_id", feishuProperties.getAppId());
+        requestBody.put("app_secret", feishuProperties.getAppSecret());
+
+        CompletableFuture<CachedToken> future = new CompletableFuture<>();
+        try {
+            RequestBody body = RequestBody.create(objectMapper.writeValueAsBytes(requestBody), JSON_MEDIA_TYPE);
+
+            Request request = new Request.Builder()
+                .url(url)
+                .post(body)
+                .build();
+
+            httpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    future.completeExceptionally(new BotException(ErrorCode.FEISHU_AUTH_ERROR,
+                            "Failed to get access token: " + e.getMessage(), e));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try {
+                        future.complete(parseToken(response));
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        response.close();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(new BotException(ErrorCode.FEISHU_AUTH_ERROR,
+                    "Failed to get access token: " + e.getMessage(), e));
+        }
+        return future;
+    }
+
+    private CachedToken parseToken(Response response) {
+        try {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new BotException(ErrorCode.FEISHU_AUTH_ERROR, "Failed to get access token");
+            }
+
+            Map<String, Object> responseMap = objectMapper.readValue(response.body().string(), Map.class);
+            String token = (String) responseMap.get("tenant_access_token");
+            Number expire = (Number) responseMap.get("expire");
+            if (token == null || expire == null) {
+                throw new BotException(ErrorCode.FEISHU_AUTH_ERROR,
+                        "Failed to get access token: " + responseMap.get("msg"));
+            }
+            return new CachedToken(token, System.currentTimeMillis() + expire.longValue() * 1000);
+        } catch (BotException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BotException(ErrorCode.FEISHU_AUTH_ERROR, "Failed to get access token: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class CachedToken {
+        private final String value;
+        private final long expireAt;
+
+        private CachedToken(String value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isUsable(long now) {
+            return now < expireAt - EXPIRE_SAFETY_MS;
+        }
+
+        private boolean needsRefresh(long now) {
+            return now >= expireAt - REFRESH_AHEAD_MS;
+        }
+    }
+}
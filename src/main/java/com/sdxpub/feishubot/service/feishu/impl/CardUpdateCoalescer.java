@@ -0,0 +1,97 @@
+package com.sdxpub.feishubot.service.feishu.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sdxpub.feishubot.model.feishu.FeishuCard;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 卡片更新合并器
+ * 每张卡片同一时刻最多一个更新请求在途，期间到达的新内容只保留最新一份，上一个请求完成后再发送。
+ * 被新内容覆盖的更新不会发出，其结果为false。
+ * sequence在请求发出时从卡片上分配，发出顺序即序号顺序，同一卡片严格递增。
+ */
+class CardUpdateCoalescer {
+
+    interface Sender {
+        CompletableFuture<Boolean> send(String cardId, CharSequence content, long sequence);
+    }
+
+    private static final class Channel {
+        private boolean inFlight;
+        private CharSequence pendingContent;
+        private CompletableFuture<Boolean> pendingFuture;
+    }
+
+    private final Sender sender;
+    // 只保存在途状态，序号保存在卡片上，通道过期后重建不影响序号
+    private final Cache<String, Channel> channels = Caffeine.newBuilder()
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    CardUpdateCoalescer(Sender sender) {
+        this.sender = sender;
+    }
+
+    CompletableFuture<Boolean> submit(FeishuCard card, CharSequence content) {
+        Channel channel = channels.get(card.getCardId(), k -> new Channel());
+        CompletableFuture<Boolean> future;
+        CompletableFuture<Boolean> superseded;
+        synchronized (channel) {
+            if (!channel.inFlight) {
+                channel.inFlight = true;
+                future = null;
+                superseded = null;
+            } else {
+                superseded = channel.pendingFuture;
+                future = new CompletableFuture<>();
+                channel.pendingContent = content;
+                channel.pendingFuture = future;
+            }
+        }
+        if (future == null) {
+            return dispatch(card, channel, content);
+        }
+        if (superseded != null) {
+            // 被更新的内容覆盖，不会发出
+            superseded.complete(false);
+        }
+        return future;
+    }
+
+    private CompletableFuture<Boolean> dispatch(FeishuCard card, Channel channel, CharSequence content) {
+        CompletableFuture<Boolean> result;
+        try {
+            result = sender.send(card.getCardId(), content, card.nextUpdateSequence());
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((success, e) -> sendPending(card, channel));
+        return result;
+    }
+
+    private void sendPending(FeishuCard card, Channel channel) {
+        CharSequence content;
+        CompletableFuture<Boolean> future;
+        synchronized (channel) {
+            content = channel.pendingContent;
+            future = channel.pendingFuture;
+            channel.pendingContent = null;
+            channel.pendingFuture = null;
+            if (future == null) {
+                channel.inFlight = false;
+                return;
+            }
+        }
+        dispatch(card, channel, content).whenComplete((success, e) -> {
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(success);
+            }
+        });
+    }
+}
@@ -1,15 +1,24 @@
 package com.sdxpub.feishubot.service.feishu.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.common.constants.Constants;
+import com.sdxpub.feishubot.common.utils.JsonStrings;
 import com.sdxpub.feishubot.config.FeishuProperties;
 import com.sdxpub.feishubot.model.feishu.FeishuCard;
+import com.sdxpub.feishubot.model.feishu.FeishuResponse;
+import com.sdxpub.feishubot.service.feishu.FeishuRateLimiter;
 import com.sdxpub.feishubot.service.feishu.FeishuService;
+import com.sdxpub.feishubot.service.feishu.TenantAccessTokenManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.Buffer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -20,10 +29,14 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import javax.annotation.PostConstruct;
 import org.springframework.scheduling.annotation.Scheduled;
+import com.sdxpub.feishubot.model.message.AnswerRope;
 import com.sdxpub.feishubot.model.message.Message;
 import com.sdxpub.feishubot.service.card.CardPool;
+import com.sdxpub.feishubot.service.card.CardTemplate;
+import com.sdxpub.feishubot.service.card.CardTemplateRegistry;
 
 @Service
 public class FeishuServiceImpl implements FeishuService {
@@ -32,10 +45,20 @@ public class FeishuServiceImpl implements FeishuService {
     private final OkHttpClient httpClient;
     private final FeishuProperties feishuProperties;
     private final ObjectMapper objectMapper;
+    private final TenantAccessTokenManager tokenManager;
+    private final ExecutorService cardCreationExecutor;
+    private final ExecutorService cardUpdateExecutor;
+    private final FeishuRateLimiter rateLimiter;
+    private final CardTemplateRegistry cardTemplates;
+    private final Timer updateSuccessTimer;
+    private final Timer updateFailureTimer;
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
 
 
     private final Map<String, Map<String, FeishuCard>> cardCache = new ConcurrentHashMap<>();
+    private final CardUpdateCoalescer updateCoalescer = new CardUpdateCoalescer(this::sendCardUpdate);
 
     @Autowired
     private CardPool cardPool;
@@ -50,14 +73,35 @@ public class FeishuServiceImpl implements FeishuService {
         });
     }
 
-    public FeishuServiceImpl(OkHttpClient httpClient, FeishuProperties feishuProperties, ObjectMapper objectMapper) {
-        this.httpClient = httpClient;
+    public FeishuServiceImpl(OkHttpClient feishuHttpClient, FeishuProperties feishuProperties, ObjectMapper objectMapper,
+            TenantAccessTokenManager tokenManager, ExecutorService cardCreationExecutor,
+            ExecutorService cardUpdateExecutor, FeishuRateLimiter rateLimiter, CardTemplateRegistry cardTemplates,
+            MeterRegistry meterRegistry) {
+        this.httpClient = feishuHttpClient;
         this.feishuProperties = feishuProperties;
         this.objectMapper = objectMapper;
+        this.tokenManager = tokenManager;
+        this.cardCreationExecutor = cardCreationExecutor;
+        this.cardUpdateExecutor = cardUpdateExecutor;
+        this.rateLimiter = rateLimiter;
+        this.cardTemplates = cardTemplates;
+        this.updateSuccessTimer = updateTimer(meterRegistry, "success");
+        this.updateFailureTimer = updateTimer(meterRegistry, "failure");
+    }
+
+    private static Timer updateTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("feishubot.card.update")
+                .description("Latency of card content updates, including rate limit waits")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     @Override
     public CompletableFuture<Boolean> sendCard(Message message, FeishuCard card) {
+        return sendCard(message, card, Constants.HTTP_MAX_RETRIES);
+    }
+
+    private CompletableFuture<Boolean> sendCard(Message message, FeishuCard card, int retriesLeft) {
         final FeishuCard finalCard = card.isExpired() ? cardPool.getCard() : card;
         if (finalCard == null) {
             return CompletableFuture.completedFuture(false);
@@ -67,83 +111,196 @@ public class FeishuServiceImpl implements FeishuService {
             log.info("[CardSender] Card {} is expired, using new card", card.getCardId());
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String url = feishuProperties.getApiEndpoint() + "/im/v1/messages";
-                
-                Map<String, Object> messageBody = new HashMap<>();
-                messageBody.put("receive_id_type", "open_id");
-                messageBody.put("receive_id", message.getUserId());
-                messageBody.put("msg_type", "interactive");
-                messageBody.put("content", String.format(
-                    "{\"type\":\"card\",\"data\":{\"card_id\":\"%s\"}}", 
-                    finalCard.getCardId()
-                ));
-
-                RequestBody body = RequestBody.create(
-                    MediaType.parse("application/json"),
-                    objectMapper.writeValueAsString(messageBody)
-                );
-
-                String token = getAccessToken();
-                Request request = new Request.Builder()
+        RequestBody body;
+        try {
+            Map<String, Object> messageBody = new HashMap<>();
+            messageBody.put("receive_id", message.getUserId());
+            messageBody.put("msg_type", "interactive");
+            messageBody.put("content", String.format(
+                "{\"type\":\"card\",\"data\":{\"card_id\":\"%s\"}}", 
+                finalCard.getCardId()
+            ));
+            body = RequestBody.create(objectMapper.writeValueAsBytes(messageBody), JSON_MEDIA_TYPE);
+        } catch (Exception e) {
+            log.error("[CardSender] Error sending card: {}", e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        String url = feishuProperties.getApiEndpoint() + "/im/v1/messages?receive_id_type=open_id";
+        return call(FeishuRateLimiter.Api.MESSAGE_SEND, null, token -> new Request.Builder()
                     .url(url)
                     .addHeader("Authorization", "Bearer " + token)
                     .post(body)
-                    .build();
-
-                try (Response response = httpClient.newCall(request).execute()) {
-                    boolean success = response.isSuccessful();
-                    if (!success) {
-                        // 如果发送失败，可能是卡片失效，尝试获取新卡片重试
-                        FeishuCard newCard = cardPool.getCard();
-                        if (newCard != null) {
-                            return sendCard(message, newCard).get();
-                        }
-                    }
-                    return success;
+                    .build(), Constants.HTTP_MAX_RETRIES)
+            .thenComposeAsync(result -> {
+                if (result.isSuccess()) {
+                    // 记录消息实际使用的卡片，后续按卡片ID更新内容
+                    cardCache.computeIfAbsent(message.getUserId(), k -> new ConcurrentHashMap<>())
+                            .put(message.getMessageId(), finalCard);
+                    return CompletableFuture.completedFuture(true);
+                }
+                log.warn("[CardSender] Sending card {} failed with status {}, code {}",
+                        finalCard.getCardId(), result.status, result.code);
+                // 只有卡片本身无效时才换卡重试，限流和请求错误换卡也不会成功
+                if (result.code != Constants.FEISHU_CARD_CONTENT_ERROR || retriesLeft <= 0) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                FeishuCard newCard = cardPool.getCard();
+                if (newCard == null) {
+                    return CompletableFuture.completedFuture(false);
                 }
-            } catch (Exception e) {
+                return sendCard(message, newCard, retriesLeft - 1);
+            }, cardCreationExecutor)
+            .exceptionally(e -> {
                 log.error("[CardSender] Error sending card: {}", e.getMessage());
                 return false;
-            }
-        });
+            });
     }
 
     @Override
-    public CompletableFuture<Boolean> updateCard(String cardId, String content) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String url = String.format(
-                    "%s/cardkit/v1/cards/%s/elements/markdown_1/content",
-                    feishuProperties.getApiEndpoint(),
-                    cardId
-                );
-
-                Map<String, Object> requestBody = new HashMap<>();
-                requestBody.put("content", content);
-                requestBody.put("sequence", System.currentTimeMillis());
-
-                RequestBody body = RequestBody.create(
-                    MediaType.parse("application/json"),
-                    objectMapper.writeValueAsString(requestBody)
-                );
-
-                String token = getAccessToken();
-                Request request = new Request.Builder()
+    public CompletableFuture<Boolean> sendBusyNotice(Message message) {
+        RequestBody body = cardTemplates.messageRequestBody(CardTemplate.BUSY_NOTICE, message.getUserId());
+
+        String url = feishuProperties.getApiEndpoint() + "/im/v1/messages?receive_id_type=open_id";
+        return execute(FeishuRateLimiter.Api.MESSAGE_SEND, null, token -> new Request.Builder()
                     .url(url)
                     .addHeader("Authorization", "Bearer " + token)
-                    .put(body)
-                    .build();
+                    .post(body)
+                    .build())
+            .exceptionally(e -> {
+                log.error("[CardSender] Error sending busy notice: {}", e.getMessage());
+                return false;
+            });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateCard(FeishuCard card, CharSequence content) {
+        return updateCoalescer.submit(card, content);
+    }
 
-                try (Response response = httpClient.newCall(request).execute()) {
-                    return response.isSuccessful();
+    private CompletableFuture<Boolean> sendCardUpdate(String cardId, CharSequence content, long sequence) {
+        String url = String.format(
+            "%s/cardkit/v1/cards/%s/elements/%s/content",
+            feishuProperties.getApiEndpoint(),
+            cardId,
+            CardTemplateRegistry.STREAMING_ELEMENT_ID
+        );
+        long start = System.nanoTime();
+        // 全文编码的开销随回答长度增长，放在卡片更新执行器上，不占用调度线程和OkHttp回调线程
+        return CompletableFuture.supplyAsync(() -> createUpdateBody(content, sequence), cardUpdateExecutor)
+            .thenCompose(body -> execute(FeishuRateLimiter.Api.CARD_UPDATE, cardId, token -> new Request.Builder()
+                    .url(url)
+                    .addHeader("Authorization", "Bearer " + token)
+                    .put(body)
+                    .build()))
+            .thenApply(success -> {
+                if (!success) {
+                    log.error("[CardUpdater] Card {} rejected update with sequence {}", cardId, sequence);
                 }
-            } catch (Exception e) {
+                return success;
+            })
+            .exceptionally(e -> {
                 log.error("[CardUpdater] Error updating card: {}", e.getMessage());
                 return false;
+            })
+            .whenComplete((success, e) -> (Boolean.TRUE.equals(success) ? updateSuccessTimer : updateFailureTimer)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 先取得限流令牌，再异步获取token并发出请求，在OkHttp回调中完成future，不占用线程等待网络
+     * 被飞书限流（429）时按返回的重置时间暂停对应的令牌桶后重试
+     */
+    private CompletableFuture<Boolean> execute(FeishuRateLimiter.Api api, String limitKey,
+            Function<String, Request> requestFactory) {
+        return call(api, limitKey, requestFactory, Constants.HTTP_MAX_RETRIES).thenApply(ApiResult::isSuccess);
+    }
+
+    /**
+     * 请求结果：HTTP状态码，失败时附带飞书返回的错误码
+     */
+    private static final class ApiResult {
+        private final int status;
+        private final int code;
+
+        private ApiResult(int status, int code) {
+            this.status = status;
+            this.code = code;
+        }
+
+        private boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private CompletableFuture<ApiResult> call(FeishuRateLimiter.Api api, String limitKey,
+            Function<String, Request> requestFactory, int retriesLeft) {
+        return rateLimiter.acquireAsync(api, limitKey, FeishuRateLimiter.Priority.USER)
+            .thenCompose(v -> tokenManager.getAccessTokenAsync())
+            .thenCompose(token -> {
+                CompletableFuture<ApiResult> future = new CompletableFuture<>();
+                httpClient.newCall(requestFactory.apply(token)).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        future.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        try (Response r = response) {
+                            if (r.code() == Constants.HTTP_TOO_MANY_REQUESTS) {
+                                rateLimiter.backoff(api, limitKey, r);
+                            }
+                            future.complete(new ApiResult(r.code(), r.isSuccessful() ? 0 : errorCode(r)));
+                        }
+                    }
+                });
+                return future;
+            })
+            .thenCompose(result -> {
+                if (result.status == Constants.HTTP_TOO_MANY_REQUESTS && retriesLeft > 0) {
+                    return call(api, limitKey, requestFactory, retriesLeft - 1);
+                }
+                return CompletableFuture.completedFuture(result);
+            });
+    }
+
+    /**
+     * 读取失败响应中的飞书错误码，响应体无法解析时返回-1
+     */
+    private int errorCode(Response response) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return -1;
+        }
+        try {
+            return objectMapper.readValue(body.bytes(), FeishuResponse.class).getCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 直接按块写出全文快照，不先拼接成完整字符串
+     */
+    private RequestBody createUpdateBody(CharSequence content, long sequence) {
+        Buffer json = new Buffer();
+        json.writeUtf8("{\"content\":\"");
+        try {
+            if (content instanceof AnswerRope.Snapshot) {
+                AnswerRope.Snapshot snapshot = (AnswerRope.Snapshot) content;
+                for (int i = 0; i < snapshot.chunkCount(); i++) {
+                    JsonStrings.writeEscaped(json, snapshot.chunk(i));
+                }
+            } else {
+                JsonStrings.writeEscaped(json, content.toString());
             }
-        });
+        } catch (IOException e) {
+            // 写入内存Buffer不会发生IO异常
+            throw new UncheckedIOException(e);
+        }
+        json.writeUtf8("\",\"sequence\":").writeDecimalLong(sequence).writeByte('}');
+        return RequestBody.create(json.snapshot(), JSON_MEDIA_TYPE);
     }
 
     @Override
@@ -186,33 +343,4 @@ public class FeishuServiceImpl implements FeishuService {
             }
         }
     }
-
-    private String getAccessToken() throws Exception {
-        String url = feishuProperties.getApiEndpoint() + "/auth/v3/tenant_access_token/internal";
-        
-        Map<String, String> requestBody = new HashMap<>();
-        requestBody.put("app_id", feishuProperties.getAppId());
-        requestBody.put("app_secret", feishuProperties.getAppSecret());
-
-        RequestBody body = RequestBody.create(
-            MediaType.parse("application/json"),
-            objectMapper.writeValueAsString(requestBody)
-        );
-
-        Request request = new Request.Builder()
-            .url(url)
-            .post(body)
-            .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful() || response.body() == null) {
-                throw new Exception("Failed to get access token");
-            }
-
-            String responseBody = response.body().string();
-            Map<String, Object> responseMap = objectMapper.readValue(responseBody, Map.class);
-            return (String) responseMap.get("tenant_access_token");
-        }
-    }
-
 }
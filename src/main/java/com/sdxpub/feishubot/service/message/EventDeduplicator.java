@@ -0,0 +1,62 @@
+package com.sdxpub.feishubot.service.message;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sdxpub.feishubot.config.FeishuProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 飞书事件去重
+ * 飞书在回调响应慢或失败时会重推同一事件，按event_id和message_id在时间窗口内去重，
+ * 重推的事件在分发前直接丢弃，不会再次调用Dify或创建卡片。
+ */
+@Slf4j
+@Component
+public class EventDeduplicator {
+    private static final String EVENT_KEY_PREFIX = "e:";
+    private static final String MESSAGE_KEY_PREFIX = "m:";
+
+    private final Cache<String, Boolean> seen;
+    private final Counter duplicateCounter;
+
+    public EventDeduplicator(FeishuProperties feishuProperties, MeterRegistry meterRegistry) {
+        this.seen = Caffeine.newBuilder()
+                .expireAfterWrite(feishuProperties.getEventDedupWindowMinutes(), TimeUnit.MINUTES)
+                .maximumSize(feishuProperties.getEventDedupMaxSize())
+                .build();
+        this.duplicateCounter = Counter.builder("feishubot.webhook.duplicate")
+                .description("Redelivered webhook events dropped before dispatch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登记事件，返回false表示event_id或message_id已处理过
+     */
+    public boolean markFirstSeen(String eventId, String messageId) {
+        boolean eventSeen = eventId != null && seen.asMap().putIfAbsent(EVENT_KEY_PREFIX + eventId, Boolean.TRUE) != null;
+        boolean messageSeen = messageId != null && seen.asMap().putIfAbsent(MESSAGE_KEY_PREFIX + messageId, Boolean.TRUE) != null;
+        if (eventSeen || messageSeen) {
+            duplicateCounter.increment();
+            log.info("[Dedup] Dropped redelivered event - Event: {}, Message: {}", eventId, messageId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 分发失败时移除登记，允许飞书重推的事件再次处理
+     */
+    public void forget(String eventId, String messageId) {
+        if (eventId != null) {
+            seen.invalidate(EVENT_KEY_PREFIX + eventId);
+        }
+        if (messageId != null) {
+            seen.invalidate(MESSAGE_KEY_PREFIX + messageId);
+        }
+    }
+}
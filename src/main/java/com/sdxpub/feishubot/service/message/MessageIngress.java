@@ -0,0 +1,305 @@
+package com.sdxpub.feishubot.service.message;
+
+import com.sdxpub.feishubot.config.IngressProperties;
+import com.sdxpub.feishubot.model.message.Message;
+import com.sdxpub.feishubot.service.feishu.FeishuService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 消息入口
+ * 回调线程只把消息放入该用户的信箱后立即返回，由分发线程按并发上限交给MessageService处理。
+ * 同一用户的消息按到达顺序逐条处理，上一条处理完成后才分发下一条；不同用户之间互不等待，轮流分发。
+ * 排队消息总数和单个用户的排队数都有上限，超出上限或消息排队超时时不再处理，直接回复繁忙提示。
+ * 排队时间从消息可以被分发时算起，等待同一用户上一条消息处理完成的时间不计入。
+ * 停机时不再接收新消息，尚未分发的消息都回复繁忙提示，最多等待shutdown-timeout-seconds让提示发出。
+ */
+@Slf4j
+@Component
+public class MessageIngress {
+    private static final String SHED_QUEUE_FULL = "queue_full";
+    private static final String SHED_USER_QUEUE_FULL = "user_queue_full";
+    private static final String SHED_WAIT_TIMEOUT = "wait_timeout";
+    private static final String SHED_SHUTDOWN = "shutdown";
+
+    private static final class Pending {
+        private final Message message;
+        private final long enqueuedAt;
+
+        private Pending(Message message, long enqueuedAt) {
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * 单个用户的信箱，只在mailboxes.compute中修改
+     */
+    private static final class Mailbox {
+        private final String userId;
+        private final ArrayDeque<Pending> messages = new ArrayDeque<>();
+        // 已在就绪队列中或有消息正在处理
+        private boolean scheduled;
+        // 最近一次进入就绪队列的时间，队首消息从此时开始等待分发
+        private long readyAt;
+
+        private Mailbox(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private final MessageService messageService;
+    private final FeishuService feishuService;
+    private final int queueCapacity;
+    private final int maxQueuedPerUser;
+    // 有待处理消息的用户信箱，处理完最后一条消息后移除
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    // 可以分发下一条消息的信箱，每个信箱最多出现一次
+    private final BlockingQueue<Mailbox> ready = new LinkedBlockingQueue<>();
+    // 所有信箱中排队的消息总数
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final Semaphore inFlight;
+    private final long maxWaitNanos;
+    private final long shutdownTimeoutMillis;
+    private final Timer waitTimer;
+    private final Counter queueFullCounter;
+    private final Counter userQueueFullCounter;
+    private final Counter waitTimeoutCounter;
+    private final Counter shutdownCounter;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public MessageIngress(MessageService messageService, FeishuService feishuService,
+            IngressProperties ingressProperties, MeterRegistry meterRegistry) {
+        this.messageService = messageService;
+        this.feishuService = feishuService;
+        this.queueCapacity = Math.max(1, ingressProperties.getQueueCapacity());
+        this.maxQueuedPerUser = Math.max(1, ingressProperties.getMaxQueuedPerUser());
+        int maxInFlight = Math.max(1, ingressProperties.getMaxInFlight());
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxWaitNanos = TimeUnit.SECONDS.toNanos(ingressProperties.getMaxWaitSeconds());
+        this.shutdownTimeoutMillis = TimeUnit.SECONDS.toMillis(ingressProperties.getShutdownTimeoutSeconds());
+
+        Gauge.builder("feishubot.ingress.queue.depth", queued, AtomicInteger::get)
+                .description("Messages waiting for dispatch")
+                .register(meterRegistry);
+        Gauge.builder("feishubot.ingress.mailboxes", mailboxes, ConcurrentHashMap::size)
+                .description("Users with messages queued or being handled")
+                .register(meterRegistry);
+        Gauge.builder("feishubot.ingress.inflight", inFlight, s -> maxInFlight - s.availablePermits())
+                .description("Conversations currently being handled on this node")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("feishubot.ingress.wait")
+                .description("Time a message waited for dispatch after it became the next message of its user")
+                .register(meterRegistry);
+        this.queueFullCounter = shedCounter(meterRegistry, SHED_QUEUE_FULL);
+        this.userQueueFullCounter = shedCounter(meterRegistry, SHED_USER_QUEUE_FULL);
+        this.waitTimeoutCounter = shedCounter(meterRegistry, SHED_WAIT_TIMEOUT);
+        this.shutdownCounter = shedCounter(meterRegistry, SHED_SHUTDOWN);
+
+        this.dispatcher = new Thread(this::dispatchLoop, "MessageIngress");
+        this.dispatcher.setDaemon(true);
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("feishubot.ingress.shed")
+                .description("Messages answered with a busy notice instead of being handled")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        try {
+            // 分发线程退出后信箱中的消息只由这里取出
+            dispatcher.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 就绪队列中的信箱没有正在处理的消息，直接移除；其余信箱只清空排队消息，当前消息处理完成时由complete移除
+        Set<Mailbox> idle = new HashSet<>();
+        ready.drainTo(idle);
+        List<Message> pending = new ArrayList<>();
+        for (String userId : mailboxes.keySet()) {
+            mailboxes.computeIfPresent(userId, (id, box) -> {
+                for (Pending p : box.messages) {
+                    pending.add(p.message);
+                }
+                box.messages.clear();
+                return idle.contains(box) ? null : box;
+            });
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        queued.addAndGet(-pending.size());
+
+        log.warn("[Ingress] Shutting down with {} queued messages, sending busy notices", pending.size());
+        CompletableFuture<?>[] notices = pending.stream()
+                .map(message -> shed(message, shutdownCounter, SHED_SHUTDOWN))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(notices).get(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("[Ingress] Busy notices not all sent within {} ms", shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // shed中已记录发送失败
+        }
+    }
+
+    /**
+     * 提交消息，不会阻塞调用线程；返回false表示已过载，消息已回复繁忙提示
+     */
+    public boolean submit(Message message) {
+        if (!running) {
+            shed(message, shutdownCounter, SHED_SHUTDOWN);
+            return false;
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            shed(message, queueFullCounter, SHED_QUEUE_FULL);
+            return false;
+        }
+
+        Pending pending = new Pending(message, System.nanoTime());
+        boolean[] accepted = new boolean[1];
+        boolean[] becameReady = new boolean[1];
+        Mailbox mailbox = mailboxes.compute(message.getUserId(), (userId, box) -> {
+            if (box == null) {
+                box = new Mailbox(userId);
+            }
+            if (box.messages.size() >= maxQueuedPerUser) {
+                return box;
+            }
+            box.messages.offer(pending);
+            accepted[0] = true;
+            if (!box.scheduled) {
+                box.scheduled = true;
+                box.readyAt = pending.enqueuedAt;
+                becameReady[0] = true;
+            }
+            return box;
+        });
+
+        if (!accepted[0]) {
+            queued.decrementAndGet();
+            shed(message, userQueueFullCounter, SHED_USER_QUEUE_FULL);
+            return false;
+        }
+        if (becameReady[0]) {
+            ready.offer(mailbox);
+        }
+        return true;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            Mailbox mailbox;
+            try {
+                mailbox = ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                // 放回就绪队列，停机时由shutdown处理其中的消息
+                ready.offer(mailbox);
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // 信箱处于调度状态时只有分发线程取消息，队首一定存在
+            Pending[] head = new Pending[1];
+            long[] readyAt = new long[1];
+            mailboxes.compute(mailbox.userId, (userId, box) -> {
+                head[0] = box.messages.poll();
+                readyAt[0] = box.readyAt;
+                return box;
+            });
+            Pending pending = head[0];
+            queued.decrementAndGet();
+
+            // 只计算信箱就绪后等待分发的时间，排在同一用户长回答后面的消息不会因此超时
+            long waited = System.nanoTime() - readyAt[0];
+            waitTimer.record(waited, TimeUnit.NANOSECONDS);
+            if (waited > maxWaitNanos) {
+                shed(pending.message, waitTimeoutCounter, SHED_WAIT_TIMEOUT);
+                complete(mailbox);
+                continue;
+            }
+            dispatch(mailbox, pending.message);
+        }
+    }
+
+    private void dispatch(Mailbox mailbox, Message message) {
+        try {
+            messageService.handleMessage(message).whenComplete((v, e) -> complete(mailbox));
+        } catch (RuntimeException e) {
+            log.error("[Ingress] Failed to dispatch message {}: {}", message.getMessageId(), e.getMessage());
+            complete(mailbox);
+        }
+    }
+
+    /**
+     * 当前消息处理结束，信箱中还有消息则重新排到就绪队列末尾，否则移除信箱
+     */
+    private void complete(Mailbox mailbox) {
+        inFlight.release();
+        boolean[] hasMore = new boolean[1];
+        mailboxes.compute(mailbox.userId, (userId, box) -> {
+            if (box.messages.isEmpty()) {
+                box.scheduled = false;
+                return null;
+            }
+            hasMore[0] = true;
+            box.readyAt = System.nanoTime();
+            return box;
+        });
+        if (hasMore[0]) {
+            ready.offer(mailbox);
+        }
+    }
+
+    private CompletableFuture<Boolean> shed(Message message, Counter counter, String reason) {
+        counter.increment();
+        log.warn("[Ingress] Overloaded ({}), sending busy notice for message {}", reason, message.getMessageId());
+        return feishuService.sendBusyNotice(message)
+                .exceptionally(e -> {
+                    log.error("[Ingress] Failed to send busy notice for message {}", message.getMessageId(), e);
+                    return false;
+                });
+    }
+}
@@ -4,11 +4,13 @@ import com.sdxpub.feishubot.model.message.Message;
 import com.sdxpub.feishubot.model.message.MessageBuffer;
 import com.sdxpub.feishubot.model.message.Session;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface MessageService {
     /**
-     * 处理接收到的消息
+     * 处理接收到的消息，返回的future在本次对话结束（回答发送完毕或放弃处理）时完成
      */
-    void handleMessage(Message message);
+    CompletableFuture<Void> handleMessage(Message message);
 
     /**
      * 获取或创建消息缓冲区
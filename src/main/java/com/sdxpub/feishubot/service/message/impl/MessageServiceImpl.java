@@ -10,18 +10,23 @@ import com.sdxpub.feishubot.model.message.Session;
 import com.sdxpub.feishubot.service.dify.DifyService;
 import com.sdxpub.feishubot.service.feishu.FeishuService;
 import com.sdxpub.feishubot.service.message.MessageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import com.sdxpub.feishubot.model.feishu.FeishuCard;
-import com.sdxpub.feishubot.model.dify.DifyMessage;
+import com.sdxpub.feishubot.model.dify.DifyResponse;
+import com.sdxpub.feishubot.model.message.AnswerRope;
 import com.sdxpub.feishubot.service.card.CardPool;
 
 @Service
@@ -33,26 +38,41 @@ public class MessageServiceImpl implements MessageService {
     private final CardPool cardPool;
     private final Cache<String, Session> sessionCache;
     private final ScheduledExecutorService scheduledExecutor;
+    private final ExecutorService cardCreationExecutor;
     private final ConcurrentHashMap<String, MessageBuffer> messageBuffers;
+    private final Timer cardVisibleTimer;
+    private final DistributionSummary flushSizeSummary;
+    private final Counter droppedEventCounter;
     private static final long BUFFER_FLUSH_INTERVAL_MS = 100;
-    private static final long BUFFER_MAX_TIMEOUT_MS = BUFFER_FLUSH_INTERVAL_MS * 3;
 
     public MessageServiceImpl(DifyService difyService, 
                             FeishuService feishuService, 
                             CardPool cardPool, 
                             Cache<String, Session> sessionCache, 
-                            ScheduledExecutorService scheduledExecutor) {
+                            ScheduledExecutorService scheduledExecutor,
+                            ExecutorService cardCreationExecutor,
+                            MeterRegistry meterRegistry) {
         this.difyService = difyService;
         this.feishuService = feishuService;
         this.cardPool = cardPool;
         this.sessionCache = sessionCache;
         this.scheduledExecutor = scheduledExecutor;
+        this.cardCreationExecutor = cardCreationExecutor;
         this.messageBuffers = new ConcurrentHashMap<>();
+        this.cardVisibleTimer = Timer.builder("feishubot.card.visible")
+                .description("Time from receiving a message to the answer card being shown to the user")
+                .register(meterRegistry);
+        this.flushSizeSummary = DistributionSummary.builder("feishubot.buffer.flush.size")
+                .description("New answer characters sent by each card update")
+                .baseUnit("chars")
+                .register(meterRegistry);
+        this.droppedEventCounter = Counter.builder("feishubot.dify.events.dropped")
+                .description("Dify events received after the message buffer was released")
+                .register(meterRegistry);
     }
 
     @Override
-    @Async
-    public void handleMessage(Message message) {
+    public CompletableFuture<Void> handleMessage(Message message) {
         String userId = message.getUserId();
         String messageId = message.getMessageId();
         log.info("[MessageService] Starting to handle message - ID: {}, User: {}", messageId, userId);
@@ -66,16 +86,19 @@ public class MessageServiceImpl implements MessageService {
             CompletableFuture<Void> cardFuture = handleCardCreation(message, buffer);
             CompletableFuture<Void> difyFuture = handleDifyMessage(message);
 
-            // 等待两个任务都完成
+            // 任一环节失败则放弃本次对话，释放缓冲区
             CompletableFuture.allOf(cardFuture, difyFuture)
                 .exceptionally(e -> {
                     log.error("Error in message handling: {}", e.getMessage(), e);
-                    throw new BotException(ErrorCode.MESSAGE_HANDLE_ERROR, e.getMessage());
+                    removeBuffer(userId, messageId);
+                    return null;
                 });
         } catch (Exception e) {
             log.error("Failed to handle message: {}", messageId, e);
+            removeBuffer(userId, messageId);
             throw new BotException(ErrorCode.MESSAGE_HANDLE_ERROR, e.getMessage());
         }
+        return buffer.getReleased();
     }
 
     private CompletableFuture<Void> handleCardCreation(Message message, MessageBuffer buffer) {
@@ -89,44 +112,53 @@ public class MessageServiceImpl implements MessageService {
                 }
                 log.info("[MessageService] Successfully got card from pool: {}", initialCard.getCardId());
 
+                // 卡片无效时sendCard内部已换卡重试，这里不再重试
                 feishuService.sendCard(message, initialCard)
                     .thenAccept(success -> {
                         if (success) {
-                            buffer.setCardReady(true);
+                            markCardReady(message, buffer);
                         } else {
-                            log.warn("[MessageService] Failed to send initial card, attempting retry for message ID: {}", message.getMessageId());
-                            FeishuCard retryCard = cardPool.getCard();
-                            if (retryCard != null) {
-                                log.info("[MessageService] Retrying with new card {} for message ID: {}", retryCard.getCardId(), message.getMessageId());
-                                feishuService.sendCard(message, retryCard)
-                                    .thenAccept(retrySuccess -> buffer.setCardReady(retrySuccess));
-                            }
+                            log.warn("[MessageService] Failed to send card for message ID: {}", message.getMessageId());
+                            removeBuffer(message.getUserId(), message.getMessageId());
                         }
                     });
             } catch (Exception e) {
                 log.error("Failed to create/send card: {}", e.getMessage(), e);
                 throw new BotException(ErrorCode.FEISHU_CARD_CREATE_ERROR, e.getMessage());
             }
-        });
+        }, cardCreationExecutor);
+    }
+
+    /**
+     * 卡片发送成功后标记就绪，并发送卡片就绪前已缓冲的内容
+     */
+    private void markCardReady(Message message, MessageBuffer buffer) {
+        cardVisibleTimer.record(System.nanoTime() - message.getReceivedNanos(), TimeUnit.NANOSECONDS);
+        buffer.setCardReady(true);
+        triggerMessageSend(buffer.getUserId(), buffer.getMessageId());
     }
 
+    /**
+     * 发起Dify流式请求，流的读取在Dify流执行器上进行，这里不阻塞
+     */
     private CompletableFuture<Void> handleDifyMessage(Message message) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String userId = message.getUserId();
-                Session session = getSession(userId);
-                
-                if (session == null || session.isExpired()) {
-                    difyService.createNewConversation(userId);
-                }
-                
-                difyService.sendMessage(message, response -> 
-                    handleDifyResponse(response, userId, message.getMessageId()));
-            } catch (Exception e) {
-                log.error("Failed to send message to Dify: {}", e.getMessage(), e);
-                throw new BotException(ErrorCode.DIFY_REQUEST_ERROR, e.getMessage());
+        try {
+            String userId = message.getUserId();
+            Session session = getSession(userId);
+            
+            if (session == null || session.isExpired()) {
+                difyService.createNewConversation(userId);
             }
-        });
+            
+            difyService.sendMessage(message, response -> 
+                handleDifyResponse(response, userId, message.getMessageId()));
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            log.error("Failed to send message to Dify: {}", e.getMessage(), e);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new BotException(ErrorCode.DIFY_REQUEST_ERROR, e.getMessage()));
+            return failed;
+        }
     }
 
     @Override
@@ -134,7 +166,7 @@ public class MessageServiceImpl implements MessageService {
         String key = userId + "_" + messageId;
         return messageBuffers.computeIfAbsent(key, k -> {
             MessageBuffer buffer = new MessageBuffer(userId, messageId);
-            scheduleBufferTimeout(buffer);
+            scheduleBufferExpiry(buffer, Constants.MESSAGE_BUFFER_EXPIRE_MS);
             return buffer;
         });
     }
@@ -166,102 +198,143 @@ public class MessageServiceImpl implements MessageService {
     public void removeBuffer(String userId, String messageId) {
         String key = userId + "_" + messageId;
         MessageBuffer buffer = messageBuffers.remove(key);
-        if (buffer != null && buffer.getFlushTimer() != null) {
-            buffer.getFlushTimer().cancel(false);
+        if (buffer != null) {
+            buffer.resetFlushTimer();
+            feishuService.removeCard(userId, messageId);
+            buffer.release();
         }
     }
 
     @Override
     public void triggerMessageSend(String userId, String messageId) {
-        MessageBuffer buffer = getOrCreateBuffer(userId, messageId);
-        if (buffer.isEmpty() || !buffer.isCardReady()) {
+        MessageBuffer buffer = messageBuffers.get(userId + "_" + messageId);
+        if (buffer == null || !buffer.isCardReady()) {
+            return;
+        }
+
+        FeishuCard card = feishuService.getCard(userId, messageId);
+        if (card == null) {
             return;
         }
 
-        if (buffer.tryLock()) {
+        if (!buffer.isEmpty() && buffer.tryLock()) {
             try {
-                String content = buffer.getAndClear();
-                feishuService.updateCard(messageId, content)
+                // 卡片内容接口会整体替换markdown元素，因此每次发送全文快照
+                long sentBefore = buffer.getSentLength();
+                AnswerRope.Snapshot content = buffer.takeSnapshot();
+                flushSizeSummary.record(content.length() - sentBefore);
+                // 失败原因由FeishuService记录；被后续快照覆盖的更新同样返回false
+                feishuService.updateCard(card, content)
                     .thenAccept(success -> {
                         if (!success) {
-                            log.error("Failed to update card: {}", messageId);
+                            log.debug("Card {} update for message {} not applied", card.getCardId(), messageId);
                         }
                     })
                     .exceptionally(e -> {
-                        log.error("Error updating card: {}", messageId, e);
+                        log.error("Error updating card {} for message {}", card.getCardId(), messageId, e);
                         return null;
                     });
             } finally {
                 buffer.unlock();
             }
         }
+
+        if (!buffer.isEmpty()) {
+            // 其他线程正在发送，稍后补发剩余内容
+            scheduleDelayedSend(buffer);
+        } else if (buffer.isCompleted()) {
+            removeBuffer(userId, messageId);
+        }
     }
 
-    private void scheduleBufferTimeout(MessageBuffer buffer) {
+    /**
+     * 缓冲区的兜底过期，防止卡片发送失败等情况下缓冲区一直留在内存中
+     * 按最后活动时间计算空闲时长，流未结束时不过期；流的结束由Dify客户端的读超时保证
+     */
+    private void scheduleBufferExpiry(MessageBuffer buffer, long delayMillis) {
         ScheduledFuture<?> future = scheduledExecutor.schedule(
-            () -> {
-                if (!buffer.isEmpty()) {
-                    triggerMessageSend(buffer.getUserId(), buffer.getMessageId());
-                }
-                removeBuffer(buffer.getUserId(), buffer.getMessageId());
-            },
-            Constants.MESSAGE_BUFFER_MAX_TIMEOUT_MS,
+            () -> checkBufferExpiry(buffer),
+            delayMillis,
             TimeUnit.MILLISECONDS
         );
         buffer.setFlushTimer(future);
     }
 
-    private void handleDifyResponse(Object response, String userId, String messageId) {
-        MessageBuffer buffer = getOrCreateBuffer(userId, messageId);
-        
-        if (response instanceof DifyMessage) {
-            DifyMessage difyMessage = (DifyMessage) response;
-            
-            // 处理会话ID
-            if (difyMessage.getConversationId() != null) {
-                Session session = getSession(userId);
-                if (session == null) {
-                    session = createSession(userId, difyMessage.getConversationId());
-                } else {
-                    session.setConversationId(difyMessage.getConversationId());
-                    updateSession(session);
-                }
+    private void checkBufferExpiry(MessageBuffer buffer) {
+        String userId = buffer.getUserId();
+        String messageId = buffer.getMessageId();
+        if (messageBuffers.get(userId + "_" + messageId) != buffer) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - buffer.getLastActivityTime();
+        if (idle < Constants.MESSAGE_BUFFER_EXPIRE_MS) {
+            scheduleBufferExpiry(buffer, Constants.MESSAGE_BUFFER_EXPIRE_MS - idle);
+        } else if (!buffer.isCompleted()) {
+            log.warn("[MessageService] Stream for message {} idle for {} ms but still open, keeping buffer", messageId, idle);
+            scheduleBufferExpiry(buffer, Constants.MESSAGE_BUFFER_EXPIRE_MS);
+        } else {
+            log.warn("[MessageService] Buffer for message {} expired after {} ms idle", messageId, idle);
+            removeBuffer(userId, messageId);
+        }
+    }
+
+    private void handleDifyResponse(DifyResponse response, String userId, String messageId) {
+
+        // 处理会话ID
+        if (response.getConversationId() != null) {
+            Session session = getSession(userId);
+            if (session == null) {
+                createSession(userId, response.getConversationId());
+            } else {
+                session.setConversationId(response.getConversationId());
+                updateSession(session);
             }
+        }
 
-            // 处理消息内容
-            if (difyMessage.getAnswer() != null) {
-                // Agent消息，追加到缓冲区
-                buffer.append(difyMessage.getAnswer());
-                
-                // 检查是否需要触发发送
-                if (buffer.shouldFlush()) {
-                    triggerMessageSend(userId, messageId);
-                }
+        // 缓冲区已移除说明对话已放弃，不再重建
+        MessageBuffer buffer = messageBuffers.get(userId + "_" + messageId);
+        if (buffer == null) {
+            droppedEventCounter.increment();
+            if (response.hasAnswer()) {
+                log.debug("[MessageService] Dropping answer chunk for released message {}", messageId);
             } else {
-                // 非Agent消息，立即触发发送
-                if (!buffer.isEmpty()) {
-                    triggerMessageSend(userId, messageId);
-                }
+                log.info("[MessageService] Dropping {} event for released message {}", response.getEvent(), messageId);
             }
-        } else if (response instanceof String) {
-            // 处理普通文本消息
-            buffer.append((String) response);
+            return;
+        }
+
+        if (response.hasAnswer()) {
+            // 回答内容，追加到缓冲区，按发送间隔节流
+            buffer.append(response.getAnswer());
             if (buffer.shouldFlush()) {
                 triggerMessageSend(userId, messageId);
+            } else {
+                scheduleDelayedSend(buffer);
             }
+        } else if (Constants.DIFY_EVENT_MESSAGE_END.equals(response.getEvent())
+                || Constants.DIFY_EVENT_ERROR.equals(response.getEvent())) {
+            // 流结束，立即发送剩余内容
+            buffer.markCompleted();
+            triggerMessageSend(userId, messageId);
         }
     }
 
+    /**
+     * 在距上次发送满一个发送间隔时补发，同一缓冲区最多只有一个待执行的延迟发送
+     */
     private void scheduleDelayedSend(MessageBuffer buffer) {
-        if (buffer.getFlushTimer() != null) {
-            buffer.getFlushTimer().cancel(false);
+        if (!buffer.markFlushScheduled()) {
+            return;
         }
 
-        ScheduledFuture<?> timer = scheduledExecutor.schedule(
-            () -> triggerMessageSend(buffer.getUserId(), buffer.getMessageId()),
-            BUFFER_FLUSH_INTERVAL_MS,
+        long delay = Math.max(0, buffer.getLastSendTime() + BUFFER_FLUSH_INTERVAL_MS - System.currentTimeMillis());
+        scheduledExecutor.schedule(
+            () -> {
+                buffer.clearFlushScheduled();
+                triggerMessageSend(buffer.getUserId(), buffer.getMessageId());
+            },
+            delay,
             TimeUnit.MILLISECONDS
         );
-        buffer.setFlushTimer(timer);
     }
 }
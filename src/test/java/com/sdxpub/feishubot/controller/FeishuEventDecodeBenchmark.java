@@ -0,0 +1,106 @@
+package com.sdxpub.feishubot.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.model.feishu.FeishuEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 飞书事件回调解码基准测试，不随mvn test运行
+ * mapBinding为原来的做法：整个请求体绑定为Map后逐层强转取字段；treeParsing为readTree后按路径取字段；
+ * streamingDecoder为FeishuEventDecoder。三者都取出事件ID、类型、发送者open_id、消息ID和文本。
+ * main方法接受JMH命令行参数，如加-prof gc可同时查看每次操作的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeishuEventDecodeBenchmark {
+    private static final byte[] EVENT = ("{\"schema\":\"2.0\",\"header\":{\"event_id\":\"5e3702a84e847582be8db7fb73283c02\","
+            + "\"event_type\":\"im.message.receive_v1\",\"create_time\":\"1608725989000\","
+            + "\"token\":\"rvaYgkND1GOiu5MM0E1rncYC6PLtF7JV\",\"app_id\":\"cli_9f5343c580712544\","
+            + "\"tenant_key\":\"2ca1d211f64f6438\"},"
+            + "\"event\":{\"sender\":{\"sender_id\":{\"union_id\":\"on_8ed6aa67826108097d9ee143816345\","
+            + "\"user_id\":\"e33ggbyz\",\"open_id\":\"ou_84aad35d084aa403a838cf73ee18467\"},"
+            + "\"sender_type\":\"user\",\"tenant_key\":\"736588c9260f175e\"},"
+            + "\"message\":{\"message_id\":\"om_5ce6d572455d361153b7cb51da133945\","
+            + "\"root_id\":\"om_5ce6d572455d361153b7cb5xxfsdfsdfdsf\","
+            + "\"parent_id\":\"om_5ce6d572455d361153b7cb5xxfsdfsdfdsf\",\"create_time\":\"1609073151345\","
+            + "\"chat_id\":\"oc_5ce6d572455d361153b7xx51da133945\",\"chat_type\":\"p2p\",\"message_type\":\"text\","
+            + "\"content\":\"{\\\"text\\\":\\\"@_user_1 请帮我总结一下今天的会议纪要\\\"}\","
+            + "\"mentions\":[{\"key\":\"@_user_1\",\"id\":{\"union_id\":\"on_8ed6aa67826108097d9ee143816345\","
+            + "\"user_id\":\"e33ggbyz\",\"open_id\":\"ou_84aad35d084aa403a838cf73ee18467\"},"
+            + "\"name\":\"Tom\",\"tenant_key\":\"736588c9260f175e\"}]}}}").getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FeishuEventDecoder decoder = new FeishuEventDecoder();
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void mapBinding(Blackhole blackhole) throws IOException {
+        Map<String, Object> payload = objectMapper.readValue(EVENT, Map.class);
+        Map<String, Object> header = (Map<String, Object>) payload.get("header");
+        Map<String, Object> event = (Map<String, Object>) payload.get("event");
+        Map<String, Object> message = (Map<String, Object>) event.get("message");
+        Map<String, Object> sender = (Map<String, Object>) event.get("sender");
+        Map<String, Object> senderId = (Map<String, Object>) sender.get("sender_id");
+        Map<String, Object> content = objectMapper.readValue(message.get("content").toString(), Map.class);
+        blackhole.consume(header.get("event_id"));
+        blackhole.consume(header.get("event_type"));
+        blackhole.consume(senderId.get("open_id"));
+        blackhole.consume(message.get("message_id"));
+        blackhole.consume(content.get("text"));
+    }
+
+    @Benchmark
+    public void treeParsing(Blackhole blackhole) throws IOException {
+        JsonNode payload = objectMapper.readTree(EVENT);
+        JsonNode message = payload.path("event").path("message");
+        JsonNode content = objectMapper.readTree(message.path("content").asText());
+        blackhole.consume(payload.path("header").path("event_id").asText());
+        blackhole.consume(payload.path("header").path("event_type").asText());
+        blackhole.consume(payload.path("event").path("sender").path("sender_id").path("open_id").asText());
+        blackhole.consume(message.path("message_id").asText());
+        blackhole.consume(content.path("text").asText());
+    }
+
+    @Benchmark
+    public void streamingDecoder(Blackhole blackhole) throws IOException {
+        FeishuEvent event = decoder.decode(EVENT);
+        blackhole.consume(event.getHeader().getEventId());
+        blackhole.consume(event.getHeader().getEventType());
+        blackhole.consume(event.getEvent().getSenderOpenId());
+        blackhole.consume(event.getEvent().getMessage().getMessageId());
+        blackhole.consume(decoder.decodeText(event.getEvent().getMessage().getContent()));
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(FeishuEventDecodeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.sdxpub.feishubot.controller;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.sdxpub.feishubot.model.feishu.FeishuEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeishuEventDecoderTest {
+
+    private final FeishuEventDecoder decoder = new FeishuEventDecoder();
+
+    private FeishuEvent decode(String json) throws IOException {
+        return decoder.decode(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodesMessageReceiveEvent() throws IOException {
+        FeishuEvent event = decode("{\"schema\":\"2.0\","
+                + "\"header\":{\"event_id\":\"ev_1\",\"event_type\":\"im.message.receive_v1\",\"tenant_key\":\"t\"},"
+                + "\"event\":{\"sender\":{\"sender_id\":{\"union_id\":\"on_1\",\"open_id\":\"ou_1\"},\"sender_type\":\"user\"},"
+                + "\"message\":{\"message_id\":\"om_1\",\"chat_type\":\"p2p\",\"message_type\":\"text\","
+                + "\"content\":\"{\\\"text\\\":\\\"你好\\\"}\",\"mentions\":[{\"key\":\"@_user_1\"}]}}}");
+
+        assertThat(event.getChallenge()).isNull();
+        assertThat(event.getHeader().getEventId()).isEqualTo("ev_1");
+        assertThat(event.getHeader().getEventType()).isEqualTo("im.message.receive_v1");
+        assertThat(event.getEvent().getSenderOpenId()).isEqualTo("ou_1");
+        assertThat(event.getEvent().getMessage().getMessageId()).isEqualTo("om_1");
+        assertThat(event.getEvent().getMessage().getMessageType()).isEqualTo("text");
+        assertThat(decoder.decodeText(event.getEvent().getMessage().getContent())).isEqualTo("你好");
+    }
+
+    @Test
+    void decodesUrlVerification() throws IOException {
+        FeishuEvent event = decode("{\"challenge\":\"abc\",\"token\":\"x\",\"type\":\"url_verification\"}");
+
+        assertThat(event.getChallenge()).isEqualTo("abc");
+        assertThat(event.getHeader()).isNull();
+        assertThat(event.getEvent()).isNull();
+    }
+
+    @Test
+    void toleratesNullsAndUnexpectedTypes() throws IOException {
+        FeishuEvent event = decode("{\"header\":null,"
+                + "\"event\":{\"sender\":[1,2],\"message\":{\"message_id\":{\"nested\":true},\"content\":null}}}");
+
+        assertThat(event.getHeader()).isNull();
+        assertThat(event.getEvent().getSenderOpenId()).isNull();
+        assertThat(event.getEvent().getMessage().getMessageId()).isNull();
+        assertThat(event.getEvent().getMessage().getContent()).isNull();
+    }
+
+    @Test
+    void rejectsNonObjectBody() {
+        assertThatThrownBy(() -> decode("[]")).isInstanceOf(JsonParseException.class);
+        assertThatThrownBy(() -> decode("{\"header\":")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void decodesTextContent() throws IOException {
+        assertThat(decoder.decodeText("{\"text\":\"@_user_1 hi\"}")).isEqualTo("@_user_1 hi");
+        assertThat(decoder.decodeText("{\"image_key\":\"img\"}")).isNull();
+        assertThat(decoder.decodeText("{\"extra\":{\"text\":\"nested\"},\"text\":\"top\"}")).isEqualTo("top");
+    }
+}
@@ -0,0 +1,131 @@
+package com.sdxpub.feishubot.model.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流式回答延迟发送的调度开销基准测试，不随mvn test运行
+ * timerPerChunk为原来的做法：每个回答片段取消该用户的java.util.Timer并新建一个，每次都创建线程；
+ * sharedScheduler为MessageServiceImpl现在的做法：MessageBuffer.markFlushScheduled去重后，
+ * 在共享的两线程调度器上最多挂一个延迟任务。
+ * 每轮迭代结束时打印峰值线程数和延迟任务实际执行时间相对截止时间的平均滞后。
+ * main方法接受JMH命令行参数，如加-prof gc可同时查看每次操作的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class FlushSchedulingBenchmark {
+    private static final long FLUSH_DELAY_MS = 100;
+
+    // 同时进行的流数量
+    @Param({"500"})
+    private int streams;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final LongAdder lateNanos = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private ConcurrentHashMap<Integer, Timer> timers;
+    private MessageBuffer[] buffers;
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        timers = new ConcurrentHashMap<>();
+        buffers = new MessageBuffer[streams];
+        for (int i = 0; i < streams; i++) {
+            buffers[i] = new MessageBuffer("user" + i, "message" + i);
+        }
+        scheduler = new ScheduledThreadPoolExecutor(2);
+        scheduler.setRemoveOnCancelPolicy(true);
+        lateNanos.reset();
+        fired.reset();
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        long count = fired.sum();
+        System.out.printf("peak threads: %d, flushes fired: %d, mean lateness: %.2f ms%n",
+                threads.getPeakThreadCount(), count,
+                count == 0 ? 0.0 : lateNanos.sum() / (double) count / 1_000_000);
+        timers.values().forEach(Timer::cancel);
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public void timerPerChunk() {
+        int stream = ThreadLocalRandom.current().nextInt(streams);
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_DELAY_MS);
+        Timer timer = new Timer();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                recordFired(due);
+                timer.cancel();
+                timers.remove(stream, timer);
+            }
+        }, FLUSH_DELAY_MS);
+        Timer previous = timers.put(stream, timer);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    @Benchmark
+    public void sharedScheduler() {
+        MessageBuffer buffer = buffers[ThreadLocalRandom.current().nextInt(streams)];
+        if (!buffer.markFlushScheduled()) {
+            return;
+        }
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_DELAY_MS);
+        scheduler.schedule(() -> {
+            buffer.clearFlushScheduled();
+            recordFired(due);
+        }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordFired(long due) {
+        lateNanos.add(Math.max(0, System.nanoTime() - due));
+        fired.increment();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(FlushSchedulingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
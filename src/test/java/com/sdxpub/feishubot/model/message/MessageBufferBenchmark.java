@@ -0,0 +1,86 @@
+package com.sdxpub.feishubot.model.message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageBuffer基准测试，不随mvn test运行
+ * 运行方式：mvn test-compile后以测试classpath执行本类的main方法。
+ * contended组模拟多个Dify流线程同时追加、一个线程发送快照；single组只有一个追加线程，作为对照。
+ * 缓冲区每轮迭代重建，避免内容无限增长。
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class MessageBufferBenchmark {
+    private static final String TOKEN = "token ";
+
+    private MessageBuffer buffer;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        buffer = new MessageBuffer("user", "message");
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void append() {
+        buffer.append(TOKEN);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public Object drain() {
+        if (!buffer.tryLock()) {
+            return null;
+        }
+        try {
+            return buffer.takeSnapshot();
+        } finally {
+            buffer.unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("single")
+    @GroupThreads(1)
+    public void appendSingle() {
+        buffer.append(TOKEN);
+    }
+
+    @Benchmark
+    @Group("single")
+    @GroupThreads(1)
+    public Object drainSingle() {
+        return drain();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MessageBufferBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,157 @@
+package com.sdxpub.feishubot.model.message;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageBufferTest {
+    private static final int PRODUCERS = 8;
+    private static final int CHUNKS_PER_PRODUCER = 5000;
+
+    @Test
+    void concurrentAppendsAreNeitherLostNorReordered() throws Exception {
+        MessageBuffer buffer = new MessageBuffer("user", "message");
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS + 2);
+        CyclicBarrier start = new CyclicBarrier(PRODUCERS + 2);
+        CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        List<String> snapshots = new ArrayList<>();
+
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                String producer = "p" + p;
+                producers.add(executor.submit(() -> {
+                    start.await();
+                    for (int seq = 0; seq < CHUNKS_PER_PRODUCER; seq++) {
+                        buffer.append(producer + ":" + seq + ";");
+                    }
+                    producersDone.countDown();
+                    return null;
+                }));
+            }
+
+            // 两个线程争抢消费权，只有取得消费权的线程生成快照
+            List<Future<?>> drainers = new ArrayList<>();
+            for (int d = 0; d < 2; d++) {
+                drainers.add(executor.submit(() -> {
+                    start.await();
+                    boolean lastRound = false;
+                    while (!lastRound) {
+                        lastRound = producersDone.getCount() == 0;
+                        if (!buffer.tryLock()) {
+                            Thread.yield();
+                            lastRound = false;
+                            continue;
+                        }
+                        try {
+                            if (holders.incrementAndGet() > 1) {
+                                overlapped.set(true);
+                            }
+                            String snapshot = buffer.takeSnapshot().toString();
+                            synchronized (snapshots) {
+                                snapshots.add(snapshot);
+                            }
+                            holders.decrementAndGet();
+                        } finally {
+                            buffer.unlock();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : producers) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            for (Future<?> future : drainers) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(overlapped).isFalse();
+        assertThat(buffer.isEmpty()).isTrue();
+
+        // 快照只会在末尾增长
+        List<String> ordered = new ArrayList<>(snapshots);
+        ordered.sort((a, b) -> Integer.compare(a.length(), b.length()));
+        String last = "";
+        for (String snapshot : ordered) {
+            assertThat(snapshot).startsWith(last);
+            last = snapshot;
+        }
+        assertThat(buffer.getSentLength()).isEqualTo(last.length());
+
+        // 每个生产者的片段都在，且保持追加顺序
+        int[] next = new int[PRODUCERS];
+        for (String token : last.split(";")) {
+            int colon = token.indexOf(':');
+            int producer = Integer.parseInt(token.substring(1, colon));
+            int seq = Integer.parseInt(token.substring(colon + 1));
+            assertThat(seq).as("chunk order of producer %d", producer).isEqualTo(next[producer]);
+            next[producer]++;
+        }
+        for (int p = 0; p < PRODUCERS; p++) {
+            assertThat(next[p]).as("chunks of producer %d", p).isEqualTo(CHUNKS_PER_PRODUCER);
+        }
+    }
+
+    @Test
+    void releasedCompletesExactlyOnceUnderConcurrentRelease() throws Exception {
+        MessageBuffer buffer = new MessageBuffer("user", "message");
+        AtomicInteger callbacks = new AtomicInteger();
+        buffer.getReleased().thenRun(callbacks::incrementAndGet);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    buffer.release();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(buffer.getReleased()).isCompleted();
+        assertThat(callbacks).hasValue(1);
+    }
+
+    @Test
+    void emptyAndNullChunksAreIgnored() {
+        MessageBuffer buffer = new MessageBuffer("user", "message");
+        buffer.append(null);
+        buffer.append("");
+        assertThat(buffer.isEmpty()).isTrue();
+
+        buffer.append("a");
+        assertThat(buffer.isEmpty()).isFalse();
+        assertThat(buffer.tryLock()).isTrue();
+        assertThat(buffer.tryLock()).isFalse();
+        assertThat(buffer.takeSnapshot().toString()).isEqualTo("a");
+        buffer.unlock();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,49 @@
+package com.sdxpub.feishubot.service.card;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.config.CardPoolProperties;
+import com.sdxpub.feishubot.config.FeishuProperties;
+import com.sdxpub.feishubot.service.feishu.FeishuRateLimiter;
+import com.sdxpub.feishubot.service.feishu.TenantAccessTokenManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CardPoolTest {
+
+    private static CardPool cardPool(int demandWindowSeconds) {
+        CardPoolProperties properties = new CardPoolProperties();
+        properties.setInitialSize(20);
+        properties.setMinSize(5);
+        properties.setDemandWindowSeconds(demandWindowSeconds);
+        properties.setSnapshotFile("");
+        // 执行器不运行任务，只观察目标大小
+        ExecutorService executor = mock(ExecutorService.class);
+        return new CardPool(new OkHttpClient(), new FeishuProperties(), properties, new ObjectMapper(),
+                mock(TenantAccessTokenManager.class), executor, executor, mock(FeishuRateLimiter.class),
+                mock(CardTemplateRegistry.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void keepsInitialSizeUntilOneDemandWindowHasBeenObserved() {
+        CardPool pool = cardPool(300);
+
+        pool.adjustTargetSize();
+
+        assertThat(pool.getTargetSize()).isEqualTo(20);
+    }
+
+    @Test
+    void followsObservedDemandAfterTheFirstWindow() {
+        CardPool pool = cardPool(0);
+
+        pool.adjustTargetSize();
+
+        assertThat(pool.getTargetSize()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,136 @@
+package com.sdxpub.feishubot.service.card;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.common.constants.Constants;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 卡片请求体构建基准测试，不随mvn test运行
+ * mapCreateCard、mapBusyNotice为原来的做法：每次用嵌套HashMap构建卡片并经ObjectMapper序列化两次；
+ * templateCreateCard、templateBusyNotice使用CardTemplateRegistry预编码的字节。
+ * 每次操作都把请求体写入Buffer，包含OkHttp发送时的编码开销。
+ * main方法接受JMH命令行参数，如加-prof gc可同时查看每次操作的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardTemplateBenchmark {
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+    private static final String RECEIVE_ID = "ou_84aad35d084aa403a838cf73ee18467";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CardTemplateRegistry registry;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        registry = new CardTemplateRegistry(objectMapper);
+    }
+
+    @Benchmark
+    public long mapCreateCard() throws IOException {
+        Map<String, Object> cardData = new HashMap<>();
+        cardData.put("schema", "2.0");
+
+        Map<String, Object> header = new HashMap<>();
+        Map<String, Object> title = new HashMap<>();
+        title.put("content", "AI助手");
+        title.put("tag", "plain_text");
+        header.put("title", title);
+        cardData.put("header", header);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("streaming_mode", true);
+        Map<String, String> summary = new HashMap<>();
+        summary.put("content", "[生成中]");
+        config.put("summary", summary);
+        cardData.put("config", config);
+
+        Map<String, Object> bodyContent = new HashMap<>();
+        List<Map<String, String>> elements = new ArrayList<>();
+        Map<String, String> markdown = new HashMap<>();
+        markdown.put("tag", "markdown");
+        markdown.put("content", "");
+        markdown.put("element_id", "markdown_1");
+        elements.add(markdown);
+        bodyContent.put("elements", elements);
+        cardData.put("body", bodyContent);
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("type", "card_json");
+        request.put("data", objectMapper.writeValueAsString(cardData));
+
+        return write(RequestBody.create(objectMapper.writeValueAsString(request), JSON_MEDIA_TYPE));
+    }
+
+    @Benchmark
+    public long templateCreateCard() throws IOException {
+        return write(registry.createCardRequestBody(CardTemplate.STREAMING_ANSWER));
+    }
+
+    @Benchmark
+    public long mapBusyNotice() throws IOException {
+        Map<String, Object> element = new HashMap<>();
+        element.put("tag", "markdown");
+        element.put("content", Constants.FEISHU_BUSY_NOTICE);
+        Map<String, Object> cardContent = new HashMap<>();
+        cardContent.put("elements", Collections.singletonList(element));
+
+        Map<String, Object> messageBody = new HashMap<>();
+        messageBody.put("receive_id", RECEIVE_ID);
+        messageBody.put("msg_type", "interactive");
+        messageBody.put("content", objectMapper.writeValueAsString(cardContent));
+        return write(RequestBody.create(objectMapper.writeValueAsBytes(messageBody), JSON_MEDIA_TYPE));
+    }
+
+    @Benchmark
+    public long templateBusyNotice() throws IOException {
+        return write(registry.messageRequestBody(CardTemplate.BUSY_NOTICE, RECEIVE_ID));
+    }
+
+    private static long write(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        long size = buffer.size();
+        // 归还段到Okio的段池，只统计请求体本身的分配
+        buffer.clear();
+        return size;
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(CardTemplateBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
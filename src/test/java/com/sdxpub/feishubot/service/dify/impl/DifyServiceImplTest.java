@@ -0,0 +1,60 @@
+package com.sdxpub.feishubot.service.dify.impl;
+
+import com.sdxpub.feishubot.common.constants.Constants;
+import com.sdxpub.feishubot.config.DifyProperties;
+import com.sdxpub.feishubot.model.dify.DifyResponse;
+import com.sdxpub.feishubot.model.message.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DifyServiceImplTest {
+
+    private static OkHttpClient respondingWith(String sseBody) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(sseBody, MediaType.parse("text/event-stream")))
+                        .build())
+                .build();
+    }
+
+    @Test
+    void malformedEventIsSkippedAndLaterEventsStillDecode() throws InterruptedException {
+        String stream = "data: {\"event\":\"message\",\"answer\":\"Hel\"}\n\n"
+                + "data: {\"event\":\"message\",\"answer\":\n\n"
+                + "data: not json\n\n"
+                + "data: {\"event\":\"message\",\"answer\":\"lo\",\"conversation_id\":\"c1\"}\n\n"
+                + "data: {\"event\":\"message_end\",\"conversation_id\":\"c1\"}\n\n";
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DifyServiceImpl difyService = new DifyServiceImpl(new DifyProperties(), respondingWith(stream), executor,
+                meterRegistry);
+
+        List<DifyResponse> responses = new CopyOnWriteArrayList<>();
+        difyService.sendMessage(Message.createTextMessage("user", "message", "hi"), responses::add);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(responses).extracting(DifyResponse::getEvent)
+                .containsExactly("message", "message", Constants.DIFY_EVENT_MESSAGE_END);
+        assertThat(responses).extracting(DifyResponse::getAnswer)
+                .containsExactly("Hel", "lo", null);
+        assertThat(meterRegistry.get("feishubot.dify.events.malformed").counter().count()).isEqualTo(2);
+    }
+}
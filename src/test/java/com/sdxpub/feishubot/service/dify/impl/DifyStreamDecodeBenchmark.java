@@ -0,0 +1,105 @@
+package com.sdxpub.feishubot.service.dify.impl;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.model.dify.DifyResponse;
+import okio.BufferedSource;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dify流式响应解码基准测试，不随mvn test运行
+ * readerLoop为原来的做法：BufferedReader逐行读取，substring(6)后用ObjectMapper绑定DifyResponse；
+ * byteDecoder为SseEventDecoder加DifyResponseDecoder。两者都从同一份字节流读取一次完整回答。
+ * 原实现的ObjectMapper遇到未知字段会失败，这里关闭FAIL_ON_UNKNOWN_PROPERTIES，只比较解码开销。
+ * main方法接受JMH命令行参数，如加-prof gc可同时查看每次操作的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DifyStreamDecodeBenchmark {
+    private static final ObjectMapper LEGACY_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // 一次回答中的片段数
+    @Param({"50", "500"})
+    private int chunks;
+
+    private byte[] stream;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sse = new StringBuilder();
+        for (int i = 0; i < chunks; i++) {
+            sse.append("data: {\"event\":\"message\",\"task_id\":\"5ad4cb98-f0c7-4085-b384-88c403be6290\",")
+                    .append("\"id\":\"5e52ce04-874b-4d27-9045-b3bc80def685\",")
+                    .append("\"message_id\":\"5e52ce04-874b-4d27-9045-b3bc80def685\",")
+                    .append("\"conversation_id\":\"45701982-8118-4bc5-8e9b-64562b4555f2\",")
+                    .append("\"answer\":\"片段").append(i).append(" token\",\"created_at\":1705398420}\n\n");
+        }
+        sse.append("event: message\n")
+                .append("data: {\"event\":\"message_end\",\"task_id\":\"5ad4cb98-f0c7-4085-b384-88c403be6290\",")
+                .append("\"id\":\"5e52ce04-874b-4d27-9045-b3bc80def685\",")
+                .append("\"conversation_id\":\"45701982-8118-4bc5-8e9b-64562b4555f2\",")
+                .append("\"metadata\":{\"usage\":{\"prompt_tokens\":1033,\"completion_tokens\":135,")
+                .append("\"total_tokens\":1168,\"latency\":1.6},\"retriever_resources\":[{\"position\":1,")
+                .append("\"dataset_name\":\"docs\",\"score\":0.98,\"content\":\"参考内容\"}]}}\n\n");
+        stream = sse.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void readerLoop(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(stream)));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("data: ")) {
+                blackhole.consume(LEGACY_MAPPER.readValue(line.substring(6), DifyResponse.class));
+            }
+        }
+    }
+
+    @Benchmark
+    public void byteDecoder(Blackhole blackhole) throws IOException {
+        DifyResponseDecoder responseDecoder = new DifyResponseDecoder();
+        SseEventDecoder decoder = new SseEventDecoder(
+                (eventType, data) -> blackhole.consume(responseDecoder.decode(data)));
+        try (BufferedSource source = Okio.buffer(Okio.source(new ByteArrayInputStream(stream)))) {
+            decoder.decode(source);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(DifyStreamDecodeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,134 @@
+package com.sdxpub.feishubot.service.dify.impl;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseEventDecoderTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final SseEventDecoder decoder = new SseEventDecoder(
+            (eventType, data) -> events.add(eventType + "|" + data.readUtf8()));
+
+    private void decode(String text) throws IOException {
+        decoder.decode(new Buffer().writeUtf8(text));
+    }
+
+    @Test
+    void decodesLfTerminatedEvents() throws IOException {
+        decode("data: {\"a\":1}\n\nevent: ping\ndata: x\n\n");
+
+        assertThat(events).containsExactly("message|{\"a\":1}", "ping|x");
+    }
+
+    @Test
+    void decodesCrlfLineEndings() throws IOException {
+        decode("event: message\r\ndata: hello\r\n\r\ndata: world\r\n\r\n");
+
+        assertThat(events).containsExactly("message|hello", "message|world");
+    }
+
+    @Test
+    void skipsCommentsAndUnknownFields() throws IOException {
+        decode(": keep-alive\nretry: 1000\ndata: a\n: inside\nfoo: bar\n\n:\n\n");
+
+        assertThat(events).containsExactly("message|a");
+    }
+
+    @Test
+    void joinsMultiLineDataWithNewlines() throws IOException {
+        decode("data: line1\ndata:line2\ndata\ndata: line4\n\n");
+
+        assertThat(events).containsExactly("message|line1\nline2\n\nline4");
+    }
+
+    @Test
+    void keepsOnlyOneLeadingSpaceAndColonsInValue() throws IOException {
+        decode("data:  two spaces: kept\n\n");
+
+        assertThat(events).containsExactly("message| two spaces: kept");
+    }
+
+    @Test
+    void recordsLastEventIdAndSkipsEventsWithoutData() throws IOException {
+        decode("id: 7\nevent: ping\n\ndata: x\n\n");
+
+        assertThat(events).containsExactly("message|x");
+        assertThat(decoder.getLastEventId()).isEqualTo("7");
+    }
+
+    @Test
+    void dispatchesUnterminatedLastEventAtEndOfStream() throws IOException {
+        decode("data: first\n\ndata: tail");
+
+        assertThat(events).containsExactly("message|first", "message|tail");
+    }
+
+    @Test
+    void decodesUtf8Text() throws IOException {
+        decode("data: 你好，世界\n\n");
+
+        assertThat(events).containsExactly("message|你好，世界");
+    }
+
+    @Test
+    void handlesEventsSplitAcrossReads() throws IOException {
+        String stream = "event: message\r\ndata: {\"answer\":\"你好\"}\r\n\r\n"
+                + ": ping\n"
+                + "data: part1\ndata: part2\n\n";
+        byte[] bytes = stream.getBytes(StandardCharsets.UTF_8);
+
+        // 每次读取只返回很少的字节，行、CRLF和多字节字符都会被切开
+        for (int size = 1; size <= 7; size++) {
+            events.clear();
+            decoder.decode(Okio.buffer(new ChunkedSource(bytes, size)));
+
+            assertThat(events).as("read size %d", size)
+                    .containsExactly("message|{\"answer\":\"你好\"}", "message|part1\npart2");
+        }
+    }
+
+    /**
+     * 每次read最多返回chunkSize个字节的数据源
+     */
+    private static final class ChunkedSource implements Source {
+        private final byte[] bytes;
+        private final int chunkSize;
+        private int position;
+
+        private ChunkedSource(byte[] bytes, int chunkSize) {
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) {
+            if (position == bytes.length) {
+                return -1;
+            }
+            int count = (int) Math.min(Math.min(byteCount, chunkSize), bytes.length - position);
+            sink.write(bytes, position, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
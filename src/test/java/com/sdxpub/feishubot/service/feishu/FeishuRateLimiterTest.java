@@ -0,0 +1,81 @@
+package com.sdxpub.feishubot.service.feishu;
+
+import com.sdxpub.feishubot.config.FeishuRateLimitProperties;
+import com.sdxpub.feishubot.service.feishu.FeishuRateLimiter.Api;
+import com.sdxpub.feishubot.service.feishu.FeishuRateLimiter.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeishuRateLimiterTest {
+
+    private ScheduledExecutorService scheduler;
+    private FeishuRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        FeishuRateLimitProperties properties = new FeishuRateLimitProperties();
+        // 补充足够慢，测试期间余额基本不变
+        properties.setCardCreateQps(0.01);
+        properties.setCardCreateBurst(4);
+        properties.setBackgroundReserveRatio(0.5);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        rateLimiter = new FeishuRateLimiter(properties, scheduler, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void backgroundStopsAtReserveWithoutDebitingWhileWaiting() throws InterruptedException {
+        // 余额4，保留2：后台只能取走2个
+        assertThat(rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.BACKGROUND)).isDone();
+        assertThat(rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.BACKGROUND)).isDone();
+        CompletableFuture<Void> waiting = rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.BACKGROUND);
+        CompletableFuture<Void> waitingAgain = rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.BACKGROUND);
+        assertThat(waiting).isNotDone();
+        assertThat(waitingAgain).isNotDone();
+
+        // 等待中的后台请求没有扣减余额，保留的令牌仍可立即给用户请求
+        long start = System.nanoTime();
+        rateLimiter.acquire(Api.CARD_CREATE, null, Priority.USER);
+        rateLimiter.acquire(Api.CARD_CREATE, null, Priority.USER);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(waiting).isNotDone();
+    }
+
+    @Test
+    void onlyUserRequestsOverdraw() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.USER)).isDone();
+        }
+        // 余额为0时用户请求透支并等待，后台请求不透支
+        assertThat(rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.USER)).isNotDone();
+        assertThat(rateLimiter.acquireAsync(Api.CARD_CREATE, null, Priority.BACKGROUND)).isNotDone();
+    }
+
+    @Test
+    void backgroundProceedsOnceTokensRecover() throws Exception {
+        FeishuRateLimitProperties properties = new FeishuRateLimitProperties();
+        properties.setCardCreateQps(100);
+        properties.setCardCreateBurst(1);
+        properties.setBackgroundReserveRatio(0.5);
+        FeishuRateLimiter limiter = new FeishuRateLimiter(properties, scheduler, new SimpleMeterRegistry());
+
+        // 容量为1时保留额度降为0，后台请求等令牌恢复后仍能取得
+        limiter.acquire(Api.CARD_CREATE, null, Priority.USER);
+        CompletableFuture<Void> background = limiter.acquireAsync(Api.CARD_CREATE, null, Priority.BACKGROUND);
+        background.get(2, TimeUnit.SECONDS);
+        limiter.acquire(Api.CARD_CREATE, null, Priority.BACKGROUND);
+    }
+}
@@ -0,0 +1,91 @@
+package com.sdxpub.feishubot.service.feishu.impl;
+
+import com.sdxpub.feishubot.model.feishu.FeishuCard;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardUpdateCoalescerTest {
+
+    private static final class RecordingSender implements CardUpdateCoalescer.Sender {
+        private final List<String> contents = new ArrayList<>();
+        private final List<Long> sequences = new ArrayList<>();
+        private final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Boolean> send(String cardId, CharSequence content, long sequence) {
+            contents.add(content.toString());
+            sequences.add(sequence);
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            results.add(result);
+            return result;
+        }
+
+        void completeLast(boolean success) {
+            results.get(results.size() - 1).complete(success);
+        }
+    }
+
+    private static FeishuCard card(String cardId) {
+        FeishuCard card = FeishuCard.createNew("user", "message");
+        card.setReady(cardId);
+        return card;
+    }
+
+    @Test
+    void keepsOneRequestInFlightAndSendsOnlyTheLatestPendingContent() {
+        RecordingSender sender = new RecordingSender();
+        CardUpdateCoalescer coalescer = new CardUpdateCoalescer(sender);
+        FeishuCard card = card("card_1");
+
+        CompletableFuture<Boolean> first = coalescer.submit(card, "a");
+        CompletableFuture<Boolean> second = coalescer.submit(card, "ab");
+        CompletableFuture<Boolean> third = coalescer.submit(card, "abc");
+
+        assertThat(sender.contents).containsExactly("a");
+        assertThat(second).isCompletedWithValue(false);
+
+        sender.completeLast(true);
+        assertThat(first).isCompletedWithValue(true);
+        assertThat(sender.contents).containsExactly("a", "abc");
+        assertThat(third).isNotDone();
+
+        sender.completeLast(true);
+        assertThat(third).isCompletedWithValue(true);
+        assertThat(sender.sequences).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void sequenceStaysIncreasingAcrossIdlePeriodsAndFailures() {
+        RecordingSender sender = new RecordingSender();
+        CardUpdateCoalescer coalescer = new CardUpdateCoalescer(sender);
+        FeishuCard card = card("card_1");
+
+        coalescer.submit(card, "a");
+        sender.completeLast(false);
+        coalescer.submit(card, "ab");
+        sender.completeLast(true);
+
+        // 新的合并器实例相当于通道被回收，序号仍从卡片上继续
+        CardUpdateCoalescer recreated = new CardUpdateCoalescer(sender);
+        recreated.submit(card, "abc");
+
+        assertThat(sender.sequences).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void cardsDoNotBlockEachOther() {
+        RecordingSender sender = new RecordingSender();
+        CardUpdateCoalescer coalescer = new CardUpdateCoalescer(sender);
+
+        coalescer.submit(card("card_1"), "a");
+        coalescer.submit(card("card_2"), "b");
+
+        assertThat(sender.contents).containsExactly("a", "b");
+        assertThat(sender.sequences).containsExactly(1L, 1L);
+    }
+}
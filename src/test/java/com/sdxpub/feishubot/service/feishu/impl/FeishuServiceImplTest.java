@@ -0,0 +1,128 @@
+package com.sdxpub.feishubot.service.feishu.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdxpub.feishubot.config.FeishuProperties;
+import com.sdxpub.feishubot.model.feishu.FeishuCard;
+import com.sdxpub.feishubot.model.message.Message;
+import com.sdxpub.feishubot.service.card.CardPool;
+import com.sdxpub.feishubot.service.card.CardTemplateRegistry;
+import com.sdxpub.feishubot.service.feishu.FeishuRateLimiter;
+import com.sdxpub.feishubot.service.feishu.TenantAccessTokenManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeishuServiceImplTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Deque<String[]> responses = new ArrayDeque<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private CardPool cardPool;
+    private FeishuServiceImpl feishuService;
+
+    @BeforeEach
+    void setUp() throws JsonProcessingException {
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    requests.incrementAndGet();
+                    String[] next = responses.poll();
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(Integer.parseInt(next[0]))
+                            .message("status")
+                            .body(ResponseBody.create(next[1], MediaType.parse("application/json")))
+                            .build();
+                })
+                .build();
+        TenantAccessTokenManager tokenManager = mock(TenantAccessTokenManager.class);
+        when(tokenManager.getAccessTokenAsync()).thenReturn(CompletableFuture.completedFuture("token"));
+        FeishuRateLimiter rateLimiter = mock(FeishuRateLimiter.class);
+        when(rateLimiter.acquireAsync(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        feishuService = new FeishuServiceImpl(httpClient, new FeishuProperties(), objectMapper, tokenManager,
+                executor, executor, rateLimiter, new CardTemplateRegistry(objectMapper), new SimpleMeterRegistry());
+        cardPool = mock(CardPool.class);
+        when(cardPool.getCard()).thenAnswer(invocation -> card("card-new"));
+        ReflectionTestUtils.setField(feishuService, "cardPool", cardPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static FeishuCard card(String cardId) {
+        FeishuCard card = FeishuCard.createNew("user", "message");
+        card.setCardId(cardId);
+        card.setExpireTime(Long.MAX_VALUE);
+        return card;
+    }
+
+    private void respond(String... statusAndBody) {
+        for (int i = 0; i < statusAndBody.length; i += 2) {
+            responses.add(Arrays.copyOfRange(statusAndBody, i, i + 2));
+        }
+    }
+
+    private boolean send() throws Exception {
+        return feishuService.sendCard(Message.createTextMessage("user", "message", "hi"), card("card-1"))
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void invalidCardIsReplacedFromPool() throws Exception {
+        respond("400", "{\"code\":230099,\"msg\":\"Failed to create card content\"}",
+                "200", "{\"code\":0}");
+
+        assertThat(send()).isTrue();
+        assertThat(requests).hasValue(2);
+        verify(cardPool, times(1)).getCard();
+        assertThat(feishuService.getCard("user", "message").getCardId()).isEqualTo("card-new");
+    }
+
+    @Test
+    void requestErrorDoesNotConsumePoolCards() throws Exception {
+        respond("400", "{\"code\":230001,\"msg\":\"invalid receive_id\"}");
+
+        assertThat(send()).isFalse();
+        assertThat(requests).hasValue(1);
+        verify(cardPool, never()).getCard();
+    }
+
+    @Test
+    void rateLimitIsRetriedWithoutReplacingTheCard() throws Exception {
+        respond("429", "{\"code\":99991400}", "429", "{\"code\":99991400}",
+                "429", "{\"code\":99991400}", "429", "{\"code\":99991400}");
+
+        assertThat(send()).isFalse();
+        assertThat(requests).hasValue(4);
+        verify(cardPool, never()).getCard();
+    }
+}
@@ -0,0 +1,125 @@
+package com.sdxpub.feishubot.service.message;
+
+import com.sdxpub.feishubot.config.IngressProperties;
+import com.sdxpub.feishubot.model.message.Message;
+import com.sdxpub.feishubot.service.feishu.FeishuService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageIngressTest {
+
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<Void>> results = new CopyOnWriteArrayList<>();
+    private MessageService messageService;
+    private FeishuService feishuService;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageIngress ingress;
+
+    @BeforeEach
+    void setUp() {
+        messageService = mock(MessageService.class);
+        when(messageService.handleMessage(any())).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            handled.add(message.getMessageId());
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            results.add(result);
+            return result;
+        });
+        feishuService = mock(FeishuService.class);
+        when(feishuService.sendBusyNotice(any())).thenReturn(CompletableFuture.completedFuture(true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingress.shutdown();
+    }
+
+    private void start(int maxInFlight) {
+        IngressProperties properties = new IngressProperties();
+        properties.setMaxInFlight(maxInFlight);
+        properties.setMaxWaitSeconds(1);
+        ingress = new MessageIngress(messageService, feishuService, properties, meterRegistry);
+        ingress.start();
+    }
+
+    private static Message message(String userId, String messageId) {
+        return Message.createTextMessage(userId, messageId, "hi");
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handled.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(handled).hasSize(count);
+    }
+
+    @Test
+    void waitingBehindSameUserDoesNotCountTowardsTimeout() throws InterruptedException {
+        start(4);
+        ingress.submit(message("user", "m1"));
+        ingress.submit(message("user", "m2"));
+        awaitHandled(1);
+
+        // 上一条消息处理时间超过max-wait-seconds
+        Thread.sleep(1500);
+        results.get(0).complete(null);
+
+        awaitHandled(2);
+        assertThat(handled).containsExactly("m1", "m2");
+        verify(feishuService, never()).sendBusyNotice(any());
+    }
+
+    @Test
+    void waitingForInFlightSlotStillTimesOut() throws InterruptedException {
+        start(1);
+        ingress.submit(message("user1", "m1"));
+        awaitHandled(1);
+        ingress.submit(message("user2", "m2"));
+
+        Thread.sleep(1500);
+        results.get(0).complete(null);
+
+        verify(feishuService, timeout(5000)).sendBusyNotice(any());
+        assertThat(handled).containsExactly("m1");
+    }
+
+    @Test
+    void shutdownAnswersQueuedMessagesWithBusyNotice() throws InterruptedException {
+        start(1);
+        ingress.submit(message("user1", "m1"));
+        awaitHandled(1);
+        ingress.submit(message("user2", "m2"));
+        ingress.submit(message("user1", "m3"));
+
+        ingress.shutdown();
+
+        verify(feishuService, times(2)).sendBusyNotice(any());
+        assertThat(meterRegistry.get("feishubot.ingress.shed").tag("reason", "shutdown").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("feishubot.ingress.queue.depth").gauge().value()).isZero();
+
+        // 正在处理的消息完成后信箱被移除，停机后提交的消息直接回复繁忙提示
+        results.get(0).complete(null);
+        assertThat(meterRegistry.get("feishubot.ingress.mailboxes").gauge().value()).isZero();
+        assertThat(ingress.submit(message("user3", "m4"))).isFalse();
+        verify(feishuService, times(3)).sendBusyNotice(any());
+        assertThat(handled).containsExactly("m1");
+    }
+}